@@ -0,0 +1,80 @@
+package com.marungbukid.charts;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sizes of axis label samples, measured once per typeface, text size and sample and shared by
+ * every chart with the same style. Any thread, charts are also built on render threads.
+ */
+final class AxisTextMetrics {
+    // styles in an app are few, the bound only guards against text sizes that keep changing
+    private static final int MAX_ENTRIES = 64;
+
+    // guarded by the class
+    private static final Map<Key, AxisTextMetrics> cache = new HashMap<>();
+
+    final int width;
+    // the height of a line without extra padding, as a StaticLayout without include pad has it
+    final int height;
+
+    private AxisTextMetrics(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @NonNull
+    static synchronized AxisTextMetrics measure(@NonNull Paint paint, @NonNull String sample) {
+        final Key key = new Key(paint.getTypeface(), paint.getTextSize(), sample);
+        AxisTextMetrics result = cache.get(key);
+        if (result == null) {
+            final Paint.FontMetricsInt fontMetrics = new Paint.FontMetricsInt();
+            paint.getFontMetricsInt(fontMetrics);
+            result = new AxisTextMetrics(
+                    (int) paint.measureText(sample),
+                    fontMetrics.descent - fontMetrics.ascent
+            );
+            if (cache.size() >= MAX_ENTRIES) cache.clear();
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    private static final class Key {
+        @Nullable
+        final Typeface typeface;
+        final float textSize;
+        @NonNull
+        final String sample;
+
+        Key(@Nullable Typeface typeface, float textSize, @NonNull String sample) {
+            this.typeface = typeface;
+            this.textSize = textSize;
+            this.sample = sample;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return textSize == key.textSize
+                    && sample.equals(key.sample)
+                    && (typeface == null ? key.typeface == null : typeface.equals(key.typeface));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = typeface != null ? typeface.hashCode() : 0;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + sample.hashCode();
+            return result;
+        }
+    }
+}
@@ -2,13 +2,16 @@ package com.marungbukid.charts;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.database.DataSetObserver;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.RectF;
+import android.graphics.Typeface;
 import android.os.Build;
-import android.text.Layout;
-import android.text.StaticLayout;
+import android.os.Looper;
+import android.os.Trace;
 import android.text.TextPaint;
 import android.util.AttributeSet;
 import android.view.View;
@@ -18,16 +21,15 @@ import androidx.annotation.FontRes;
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.content.res.ResourcesCompat;
 
+import com.marungbukid.charts.annotation.AnnotationLayer;
 import com.marungbukid.charts.gestures.ScrubGestureDetector;
-import com.marungbukid.charts.line.LineChartEntry;
+import com.marungbukid.charts.render.TypefaceCache;
 import com.marungbukid.util.ColorUtil;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.text.DecimalFormat;
-import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -59,6 +61,8 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
     private static final int MIN_TEXT_SIZE = 12;
     private static final String PRICE_FORMAT = "##,##0.00";
     private static final String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm";
+    // the price range is split in this many buckets, the inner boundaries get a label
+    private static final int PRICE_MARKER_BUCKETS = 6;
 
     private boolean textInvolved = false;
 
@@ -96,13 +100,45 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
     private final TextPaint priceAxisTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
     @NonNull
     private final TextPaint dateTimeAxisTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    @NonNull
+    private final Paint priceDividerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    @NonNull
+    private final Paint priceGridYPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path priceGridYPath = new Path();
+    private final Path priceDividerYPath = new Path();
+    // created with the first price labels
+    @Nullable
+    private DecimalFormat priceFormat;
+    private final float[] priceMarkerValues = new float[PRICE_MARKER_BUCKETS - 2];
+    private final String[] priceMarkerLabels = new String[PRICE_MARKER_BUCKETS - 2];
+    private int priceTextHeight;
+    // the scale the price marker labels were computed for
+    @Nullable
+    private ScaleHelper priceMarkerScale;
+    private final RectF priceMarkerBounds = new RectF();
     protected @NonNull
     ScrubGestureDetector scrubGestureDetector;
     protected @Nullable
     OnScrubListener scrubListener;
+    protected @Nullable
+    OnScrubIndexListener scrubIndexListener;
 
     protected BaseChartAdapter adapter;
 
+    // event markers drawn on top of the data
+    @Nullable
+    private AnnotationLayer annotationLayer;
+    @Nullable
+    private OnAnnotationScrubListener annotationScrubListener;
+    private int scrubbedAnnotation = -1;
+
+    // render instrumentation, only collected while a listener is attached
+    private static final long NO_STAGE = Long.MIN_VALUE;
+    @Nullable
+    private ChartMetricsListener metricsListener;
+    // created with the first listener
+    @Nullable
+    private ChartMetrics metrics;
 
     public interface OnScrubListener {
         /**
@@ -113,6 +149,30 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
 
     }
 
+    /**
+     * Primitive variant of {@link OnScrubListener} that never touches {@link BaseChartAdapter#getItem(int)}.
+     */
+    public interface OnScrubIndexListener {
+        /**
+         * Indicates the user is currently scrubbing over the point at the given adapter index,
+         * drawn at the given view coordinates.
+         */
+        void onScrubbed(int index, float x, float y);
+
+        /**
+         * Indicates that the user has stopped scrubbing.
+         */
+        void onScrubEnded();
+    }
+
+    public interface OnAnnotationScrubListener {
+        /**
+         * Indicates the user is scrubbing over the marker at the given index of the annotation
+         * layer, or -1 if no marker is close enough. Only called when the marker changes.
+         */
+        void onAnnotationScrubbed(int markerIndex);
+    }
+
     public BaseChart(Context context) {
         super(context);
         _init(context, null, R.attr.stockCharts_BaseChartStyle, R.style.stockCharts_Base);
@@ -170,9 +230,6 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
         if (hasPriceAxis) {
             priceAxisTextPaint.setStyle(Paint.Style.FILL);
             priceAxisTextPaint.setColor(priceAxisTextColor);
-            if (fontId != 0 && !isInEditMode()) {
-                priceAxisTextPaint.setTypeface(ResourcesCompat.getFont(context, fontId));
-            }
 
             if (priceAxisTextSize > 0) {
                 priceAxisTextPaint.setTextSize(priceAxisTextSize);
@@ -180,31 +237,105 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
                 priceAxisTextPaint.setTextSize(getMinTextWidth());
             }
 
-            contentPaddingEnd = createTextLayout(PRICE_FORMAT, priceAxisTextPaint)
-                    .getWidth();
+            priceDividerPaint.setColor(priceAxisDividerColor);
+            priceDividerPaint.setStyle(Paint.Style.STROKE);
+            priceDividerPaint.setStrokeWidth(0.5f);
+
+            priceGridYPaint.setColor(ColorUtil.colorOpacity(priceAxisDividerColor, 0.4f));
+            priceGridYPaint.setStyle(Paint.Style.STROKE);
+            priceGridYPaint.setStrokeWidth(0.5f);
         }
 
         if (hasDateTimeIndicators) {
             dateTimeAxisTextPaint.setStyle(Paint.Style.FILL);
             dateTimeAxisTextPaint.setColor(dateTimeTextColor);
-            if (fontId != 0 && !isInEditMode()) {
-                dateTimeAxisTextPaint.setTypeface(ResourcesCompat.getFont(context, fontId));
-            }
-
 
             if (dateTimeTextSize > 0) {
                 dateTimeAxisTextPaint.setTextSize(dateTimeTextSize);
             } else {
                 dateTimeAxisTextPaint.setTextSize(getMinTextWidth());
             }
+        }
+
+        if (textInvolved && fontId != 0 && !isInEditMode()) {
+            final Typeface typeface;
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                // loaded once per font for all charts, until then the labels use the default typeface
+                typeface = TypefaceCache.getInstance().get(context, fontId, typefaceCallback);
+            } else {
+                // built on another thread, e.g. to render a snapshot, which draws before a callback
+                // on the UI thread could reach it and must not be changed from there
+                typeface = TypefaceCache.getInstance().getBlocking(context, fontId);
+            }
+            if (typeface != null) setAxisTypeface(typeface);
+        }
+        updateTextMetrics();
+    }
 
-            contentPaddingBottom = createTextLayout(DATE_TIME_FORMAT, dateTimeAxisTextPaint)
-                    .getHeight();
+    private final TypefaceCache.Callback typefaceCallback = new TypefaceCache.Callback() {
+        @Override
+        public void onTypefaceLoaded(int fontId, @NonNull Typeface typeface) {
+            setAxisTypeface(typeface);
+            updateTextMetrics();
+            // the label sizes are part of getPaddingEnd and getPaddingBottom
+            requestLayout();
+            onContentPaddingChanged();
+            invalidate();
+        }
+    };
+
+    private void setAxisTypeface(@NonNull Typeface typeface) {
+        priceAxisTextPaint.setTypeface(typeface);
+        dateTimeAxisTextPaint.setTypeface(typeface);
+    }
+
+    /**
+     * Measures the axis label samples, with metrics shared by every chart of the same style.
+     */
+    private void updateTextMetrics() {
+        if (hasPriceAxis) {
+            contentPaddingEnd = AxisTextMetrics.measure(priceAxisTextPaint, PRICE_FORMAT).width;
+            priceTextHeight = AxisTextMetrics.measure(priceAxisTextPaint, "0").height;
+        }
+        if (hasDateTimeIndicators) {
+            contentPaddingBottom = AxisTextMetrics.measure(dateTimeAxisTextPaint, DATE_TIME_FORMAT).height;
         }
     }
 
     protected abstract void populatePath();
 
+    /**
+     * Called when the axis labels changed size after construction, e.g. once the axis font
+     * arrived, which moves the content edges given by {@link #getPaddingEnd()} and
+     * {@link #getPaddingBottom()}. The default populates the path again.
+     */
+    protected void onContentPaddingChanged() {
+        populatePath();
+    }
+
+    /**
+     * @return the index of the point nearest to the given view X, or -1 if nothing is drawn. The
+     * default returns -1, for charts whose points cannot be scrubbed one by one.
+     */
+    public int getScrubIndex(float x) {
+        return -1;
+    }
+
+    /**
+     * Shows the scrub line and marker on the point at the given index, without notifying the
+     * scrub listeners. Used to mirror a scrub happening on another chart. Does nothing by
+     * default.
+     */
+    public void showScrubIndex(int index) {
+    }
+
+    /**
+     * Removes the scrub line and marker, without notifying the scrub listeners. Does nothing by
+     * default.
+     */
+    public void hideScrub() {
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
@@ -216,28 +347,6 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
         }
     }
 
-    private StaticLayout createTextLayout(String text, TextPaint textPaint) {
-        int width = (int) textPaint.measureText(text);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            return StaticLayout.Builder
-                    .obtain(text, 0, text.length(), textPaint, width)
-                    .setAlignment(Layout.Alignment.ALIGN_NORMAL)
-                    .setIncludePad(false)
-                    .build();
-        } else {
-            return new StaticLayout(
-                    text,
-                    textPaint,
-                    width,
-                    Layout.Alignment.ALIGN_NORMAL,
-                    1f,
-                    0,
-                    false
-            );
-        }
-    }
-
     public boolean isHasPriceAxis() {
         return hasPriceAxis;
     }
@@ -277,34 +386,17 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
         if (!hasPriceAxis) return;
         if (adapter.getOnDataCharts() == null) return;
 
-        float maxPrice = -1;
-        float minPrice = -1;
-
-        DecimalFormat format = new DecimalFormat(PRICE_FORMAT);
-
-        // get additional height spacing for texts
-        int textHeight = createTextLayout("0", priceAxisTextPaint).getHeight();
+        // labels only change with the geometry, keep the per-frame work allocation free
+        if (priceMarkerScale != scaleHelper) {
+            updatePriceMarkerLabels(scaleHelper);
+            priceMarkerScale = scaleHelper;
+        }
 
         // position of price data in the charts
         int priceMarkersXPos = getWidth()
                 - getPaddingEnd()
                 + dataSpacing();
 
-        // initialize divider paint
-        Paint dividerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        dividerPaint.setColor(priceAxisDividerColor);
-        dividerPaint.setStyle(Paint.Style.STROKE);
-        dividerPaint.setStrokeWidth(0.5f);
-
-        // initialize grid-Y paint
-        Paint gridYPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        gridYPaint.setColor(ColorUtil.colorOpacity(priceAxisDividerColor, 0.4f));
-        gridYPaint.setStyle(Paint.Style.STROKE);
-        gridYPaint.setStrokeWidth(0.5f);
-
-        Path gridYPath = new Path();
-        Path dividerYPath = new Path();
-
         // set ingress point for price marker divider
         int dividerXPos = priceMarkersXPos - dataSpacing();
 
@@ -314,55 +406,48 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
                 0,
                 dividerXPos,
                 getHeight(),
-                dividerPaint
+                priceDividerPaint
         );
 
-        for (int i = 0; i < adapter.getCount(); i++) {
-            if (adapter.getItem(i) instanceof LineChartEntry) {
-                LineChartEntry entry = (LineChartEntry) adapter.getItem(i);
+        priceGridYPath.rewind();
+        priceDividerYPath.rewind();
 
-                if (maxPrice < 0) maxPrice = entry.getValue();
-                if (minPrice < 0) minPrice = entry.getValue();
+        // baseline of a label whose top edge sits half a line above the marker
+        final float baselineOffset = -priceTextHeight / 2f - priceAxisTextPaint.ascent();
 
-                maxPrice = Math.max(maxPrice, entry.getValue());
-                minPrice = Math.min(minPrice, entry.getValue());
-            }
-//			else {
-//				CandlestickChartEntry entry = (CandlestickChartEntry) adapter.getItem(i);
-//
-//				if (maxPrice < 0) maxPrice = entry.getHigh();
-//				if (minPrice < 0) minPrice = entry.getLow();
-//
-//				maxPrice = Math.max(Math.max(Math.max(maxPrice, entry.getHigh()), entry.getLow()), Math.max(entry.getLow(), entry.getClose()));
-//				minPrice = Math.min(Math.min(Math.min(minPrice, entry.getHigh()), entry.getLow()), Math.min(entry.getLow(), entry.getClose()));
-//			}
-        }
+        for (int i = 0; i < priceMarkerLabels.length; i++) {
+            float yPos = scaleHelper.getY(priceMarkerValues[i]) - getPaddingBottom();
 
-        final int markerSize = 6;
-        float bucketSize = (maxPrice - minPrice) / markerSize;
-        float curPrice = minPrice + bucketSize;
+            priceGridYPath.moveTo(0, yPos);
+            priceGridYPath.lineTo(dividerXPos, yPos);
+
+            canvas.drawText(priceMarkerLabels[i], priceMarkersXPos, yPos + baselineOffset, priceAxisTextPaint);
+
+            priceDividerYPath.moveTo(dividerXPos, yPos);
+            priceDividerYPath.lineTo(dividerXPos + createSpacing(4), yPos);
+        }
 
-        for (int i = 0; i < markerSize; i++) {
-            if (i > 0 && i < markerSize - 1) {
-                curPrice += bucketSize;
-                float yPos = scaleHelper.getY(curPrice) - getPaddingBottom();
+        canvas.drawPath(priceGridYPath, priceGridYPaint);
+        canvas.drawPath(priceDividerYPath, priceDividerPaint);
+    }
 
-                gridYPath.moveTo(0, yPos);
-                gridYPath.lineTo(dividerXPos, yPos);
+    private void updatePriceMarkerLabels(@NonNull ScaleHelper scale) {
+        // the bounds of the data pinned for the scale, the live adapter may have moved on since
+        scale.getDataBounds(priceMarkerBounds);
+        final float maxPrice = priceMarkerBounds.bottom;
+        final float minPrice = priceMarkerBounds.top;
 
-                canvas.save();
-                canvas.translate(priceMarkersXPos, yPos - (float) (textHeight / 2));
-                createTextLayout(format.format(curPrice), priceAxisTextPaint)
-                        .draw(canvas);
-                canvas.restore();
+        float bucketSize = (maxPrice - minPrice) / PRICE_MARKER_BUCKETS;
+        float curPrice = minPrice + bucketSize;
 
-                dividerYPath.moveTo(dividerXPos, yPos);
-                dividerYPath.lineTo(dividerXPos + createSpacing(4), yPos);
+        for (int i = 0; i < priceMarkerLabels.length; i++) {
+            curPrice += bucketSize;
+            if (priceMarkerLabels[i] == null || priceMarkerValues[i] != curPrice) {
+                if (priceFormat == null) priceFormat = new DecimalFormat(PRICE_FORMAT);
+                priceMarkerLabels[i] = priceFormat.format(curPrice);
             }
+            priceMarkerValues[i] = curPrice;
         }
-
-        canvas.drawPath(gridYPath, gridYPaint);
-        canvas.drawPath(dividerYPath, dividerPaint);
     }
 
     /**
@@ -556,6 +641,139 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
         this.scrubListener = scrubListener;
     }
 
+    @Nullable
+    public OnScrubIndexListener getScrubIndexListener() {
+        return scrubIndexListener;
+    }
+
+    public void setScrubIndexListener(@Nullable OnScrubIndexListener scrubIndexListener) {
+        this.scrubIndexListener = scrubIndexListener;
+    }
+
+    /**
+     * Sets the event markers drawn on top of the data, or null for none.
+     */
+    public void setAnnotationLayer(@Nullable AnnotationLayer annotationLayer) {
+        if (this.annotationLayer != null) {
+            this.annotationLayer.unregisterObserver(annotationObserver);
+        }
+        this.annotationLayer = annotationLayer;
+        if (annotationLayer != null) {
+            annotationLayer.registerObserver(annotationObserver);
+        }
+        scrubbedAnnotation = -1;
+        invalidate();
+    }
+
+    @Nullable
+    public AnnotationLayer getAnnotationLayer() {
+        return annotationLayer;
+    }
+
+    public void setOnAnnotationScrubListener(@Nullable OnAnnotationScrubListener listener) {
+        this.annotationScrubListener = listener;
+    }
+
+    /**
+     * Draws the annotation layer, subclasses call this once their data is drawn.
+     */
+    protected final void drawAnnotations(@NonNull Canvas canvas) {
+        if (annotationLayer == null || scaleHelper == null) return;
+
+        annotationLayer.draw(canvas, scaleHelper);
+    }
+
+    /**
+     * Resolves the marker under a scrub at view x and notifies the listener if it changed.
+     */
+    protected final void dispatchAnnotationScrub(float x) {
+        if (annotationScrubListener == null || annotationLayer == null || scaleHelper == null) return;
+
+        final int marker = annotationLayer.findNearest(x, scaleHelper,
+                2 * annotationLayer.getMarkerRadius());
+        if (marker != scrubbedAnnotation) {
+            scrubbedAnnotation = marker;
+            annotationScrubListener.onAnnotationScrubbed(marker);
+        }
+    }
+
+    protected final void dispatchAnnotationScrubEnded() {
+        if (scrubbedAnnotation == -1) return;
+
+        scrubbedAnnotation = -1;
+        if (annotationScrubListener != null) {
+            annotationScrubListener.onAnnotationScrubbed(-1);
+        }
+    }
+
+    private final DataSetObserver annotationObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            super.onChanged();
+            scrubbedAnnotation = -1;
+            invalidate();
+        }
+    };
+
+    @Nullable
+    public ChartMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Enables render instrumentation. While a listener is set, every render stage is timed and
+     * wrapped in an {@link Trace} section. Passing null turns collection off entirely.
+     */
+    public void setMetricsListener(@Nullable ChartMetricsListener metricsListener) {
+        if (metrics == null) {
+            if (metricsListener != null) metrics = new ChartMetrics();
+        } else if (this.metricsListener == null) {
+            metrics.reset();
+        }
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Marks the start of a render stage.
+     *
+     * @return the token to pass to {@link #endStage(int, long)}.
+     */
+    protected final long beginStage(@ChartMetrics.Stage int stage) {
+        if (metricsListener == null) return NO_STAGE;
+
+        Trace.beginSection(ChartMetrics.sectionName(stage));
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a render stage started with {@link #beginStage(int)}.
+     */
+    protected final void endStage(@ChartMetrics.Stage int stage, long token) {
+        if (token == NO_STAGE) return;
+
+        metrics.recordStage(stage, System.nanoTime() - token);
+        Trace.endSection();
+    }
+
+    /**
+     * Reports a finished geometry rebuild to the metrics listener, if any.
+     */
+    protected final void reportPopulated(int pointsIn, int pointsOut) {
+        if (metricsListener == null) return;
+
+        metrics.recordRebuild(pointsIn, pointsOut, System.nanoTime());
+        metricsListener.onPathPopulated(metrics);
+    }
+
+    /**
+     * Reports a finished frame to the metrics listener, if any.
+     */
+    protected final void reportDrawn() {
+        if (metricsListener == null) return;
+
+        metricsListener.onDrawn(metrics);
+    }
+
     public static class ScaleHelper {
         // the width and height of the view
         final float width, height;
@@ -566,8 +784,22 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
         final float xTranslation, yTranslation;
 
         final float topPadding, leftPadding, rightPadding;
+        // data bounds the scale was computed from, before centering flat data
+        private final RectF dataBounds;
 
+        /**
+         * Creates a scale for the bounds of {@code adapter}. Pass data pinned with
+         * {@link BaseChartAdapter#pin()}, so the scale matches the points projected with it.
+         */
         public ScaleHelper(BaseChartAdapter adapter, RectF contentRect, float lineWidth, boolean fill) {
+            this(adapter.getDataBounds(), adapter.getCount(), contentRect, lineWidth, fill);
+        }
+
+        /**
+         * Creates a scale for data already known to span {@code dataBounds}, without scanning
+         * the adapter.
+         */
+        public ScaleHelper(RectF dataBounds, int size, RectF contentRect, float lineWidth, boolean fill) {
             leftPadding = contentRect.left;
             topPadding = contentRect.top;
             rightPadding = contentRect.right;
@@ -578,10 +810,10 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
             this.width = contentRect.width() - lineWidthOffset;
             this.height = contentRect.height() - lineWidthOffset;
 
-            this.size = adapter.getCount();
+            this.size = size;
+            this.dataBounds = new RectF(dataBounds);
 
-            // get data bounds from adapter
-            RectF bounds = adapter.getDataBounds();
+            RectF bounds = new RectF(dataBounds);
 
             // if data is a line (which technically has no size), expand bounds to center the data
             bounds.inset(bounds.width() == 0 ? -1 : 0, bounds.height() == 0 ? -1 : 0);
@@ -616,6 +848,22 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
             return height - (rawY * yScale) + yTranslation;
         }
 
+        /**
+         * Sets {@code matrix} to map raw data coordinates to view coordinates, the same as
+         * {@link #getX(float)} and {@link #getY(float)} do.
+         */
+        public void getMatrix(@NonNull Matrix matrix) {
+            matrix.setScale(xScale, -yScale);
+            matrix.postTranslate(xTranslation, height + yTranslation);
+        }
+
+        /**
+         * Copies the data bounds the scale was computed from into {@code out}.
+         */
+        public void getDataBounds(@NonNull RectF out) {
+            out.set(dataBounds);
+        }
+
         public float getTopPadding() {
             return topPadding;
         }
@@ -623,16 +871,64 @@ public abstract class BaseChart extends View implements ScrubGestureDetector.Scr
         public float getRightPadding() {
             return rightPadding;
         }
+
+        public float getLeftPadding() {
+            return leftPadding;
+        }
+
+        /**
+         * The inverse of {@link #getX(float)}: the raw X value drawn at the given view X.
+         */
+        public float getRawX(float x) {
+            return (x - xTranslation) / xScale;
+        }
+
+        /**
+         * @return the lowest raw Y value of the data, drawn at the bottom of the content.
+         */
+        public float getMinY() {
+            return dataBounds.top;
+        }
     }
 
-    public static int getNearestIndex(List<Float> points, float point) {
-        int index = Collections.binarySearch(points, point);
+    /**
+     * Fills {@code lookup} so that {@code lookup[column]} is the index of the point nearest to
+     * that pixel column, for every column in {@code [0, columns)}.
+     *
+     * @param points projected X values in ascending order
+     */
+    public static void buildNearestIndexLookup(float[] points, int count, int[] lookup, int columns) {
+        int index = 0;
+        for (int column = 0; column < columns; column++) {
+            // the points are sorted, so the nearest index only ever moves forward
+            while (index + 1 < count
+                    && Math.abs(points[index + 1] - column) <= Math.abs(points[index] - column)) {
+                index++;
+            }
+            lookup[column] = index;
+        }
+    }
 
-        // if binary search returns positive, we had an exact match, return that index
-        if (index >= 0) return index;
+    public static int getNearestIndex(List<Float> points, float point) {
+        // binary search by hand, Collections.binarySearch() would box the key on every call
+        int low = 0;
+        int high = points.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final float midValue = points.get(mid);
+
+            if (midValue < point) {
+                low = mid + 1;
+            } else if (midValue > point) {
+                high = mid - 1;
+            } else {
+                // we had an exact match, return that index
+                return mid;
+            }
+        }
 
-        // otherwise, calculate the binary search's specified insertion index
-        index = -1 - index;
+        // otherwise, low is the insertion index
+        int index = low;
 
         // if we're inserting at 0, then our guaranteed nearest index is 0
         if (index == 0) return index;
@@ -5,13 +5,26 @@ import android.database.DataSetObserver;
 import android.graphics.RectF;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class BaseChartAdapter<T extends BaseChartEntry> {
+    private static final AtomicLong nextAdapterId = new AtomicLong();
+    // versions back that getUnchangedCount can answer for
+    private static final int CHANGE_HISTORY = 16;
+
     private final DataSetObservable observable = new DataSetObservable();
+    private final long adapterId = nextAdapterId.incrementAndGet();
     private OnDataCharts<T> onDataCharts;
+    private int dataVersion;
+    // leading points unchanged since each of the last versions, newest first, -1 where unknown.
+    // Only kept once a subclass reports a partial change.
+    @Nullable
+    private int[] unchangedSince;
 
     /**
      * @return the number of points to be drawn.
@@ -79,14 +92,87 @@ public abstract class BaseChartAdapter<T extends BaseChartEntry> {
         return 0;
     }
 
+    /**
+     * @return a number that changes every time the data set is changed or invalidated. Geometry
+     * computed for one version can be reused for as long as the version stays the same.
+     */
+    public int getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * @return how many leading points of the data as it was at {@code version} are still the
+     * same, at the same indices: the old count after points were appended, one less after the
+     * last point was replaced, 0 after any other change. -1 if the adapter cannot tell, readers
+     * then read every point again. Adapters report partial changes with
+     * {@link #notifyDataSetChangedFrom(int)}; adapters with their own versions override this too.
+     */
+    public int getUnchangedCount(int version) {
+        final int current = getDataVersion();
+        if (version == current) return getCount();
+
+        final int[] history = unchangedSince;
+        final int distance = current - version;
+        if (history == null || distance < 1 || distance > history.length) return -1;
+        return history[distance - 1];
+    }
+
+    /**
+     * @return a number unique to this adapter within the process. Data versions only count per
+     * adapter, so caches shared between adapters key on both.
+     */
+    public final long getAdapterId() {
+        return adapterId;
+    }
+
+    /**
+     * @return the data to read for one pass over the points, such as projection, bounds or a
+     * scrub. Adapters written from other threads return an immutable snapshot, so every read in
+     * the pass sees the same data without locking. The default returns the adapter itself, for
+     * adapters only changed on the UI thread.
+     */
+    @NonNull
+    public BaseChartAdapter<T> pin() {
+        return this;
+    }
+
     public final void notifyDataSetChanged() {
+        recordChange(0);
+        dataVersion++;
+        observable.notifyChanged();
+    }
+
+    /**
+     * Notifies observers of a change that kept every point before {@code index}, such as points
+     * appended at {@code index} or the last point replaced. Readers keep what they derived from
+     * those points, see {@link #getUnchangedCount(int)}.
+     */
+    public final void notifyDataSetChangedFrom(int index) {
+        if (unchangedSince == null) {
+            unchangedSince = new int[CHANGE_HISTORY];
+            Arrays.fill(unchangedSince, -1);
+        }
+        recordChange(index);
+        dataVersion++;
         observable.notifyChanged();
     }
 
     public final void notifyDataSetInvalidated() {
+        recordChange(0);
+        dataVersion++;
         observable.notifyInvalidated();
     }
 
+    private void recordChange(int unchangedCount) {
+        final int[] history = unchangedSince;
+        if (history == null) return;
+
+        for (int i = history.length - 1; i > 0; i--) {
+            history[i] = Math.min(unchangedCount, history[i - 1]);
+        }
+        history[0] = unchangedCount;
+    }
+
     public final void registerDataSetObserver(DataSetObserver observer) {
         observable.registerObserver(observer);
     }
@@ -0,0 +1,128 @@
+package com.marungbukid.charts;
+
+import android.view.ViewConfiguration;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.gestures.ScrubGestureDetector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scrubs several charts together, e.g. price, volume and indicator panes of one instrument.
+ * <p>
+ * The group owns the scrub gesture of its members. A scrub on any member is resolved to an
+ * index once per frame, on the touched chart, and the same index is shown on every member in
+ * that frame. Charts only redraw when the index actually changes. On hardware accelerated API 29+
+ * a {@link com.marungbukid.charts.line.LineChartView} member replays its recorded line and fill
+ * from a layer and only draws its scrub line and markers again; below that every member redraws
+ * in full, with a reduced line. The members should share the same X indices; members with fewer
+ * points clamp to their last one.
+ */
+public class ChartGroup {
+
+    public interface OnScrubListener {
+        /**
+         * Indicates the user is currently scrubbing over the given index on all member charts.
+         */
+        void onScrubbed(int index);
+
+        /**
+         * Indicates that the user has stopped scrubbing.
+         */
+        void onScrubEnded();
+    }
+
+    private final List<Member> members = new ArrayList<>();
+    @Nullable
+    private OnScrubListener scrubListener;
+    private int scrubIndex = -1;
+
+    public void addChart(@NonNull BaseChart chart) {
+        if (indexOf(chart) >= 0) return;
+
+        final float touchSlop = ViewConfiguration.get(chart.getContext()).getScaledTouchSlop();
+        final Member member = new Member(chart, touchSlop);
+        members.add(member);
+        chart.setOnTouchListener(member.detector);
+    }
+
+    /**
+     * Removes the chart from the group and gives it back its own scrub gesture, if it had one.
+     */
+    public void removeChart(@NonNull BaseChart chart) {
+        final int index = indexOf(chart);
+        if (index < 0) return;
+
+        members.remove(index);
+        chart.hideScrub();
+        chart.setOnTouchListener(chart.scrubGestureDetector);
+    }
+
+    @Nullable
+    public OnScrubListener getScrubListener() {
+        return scrubListener;
+    }
+
+    public void setScrubListener(@Nullable OnScrubListener scrubListener) {
+        this.scrubListener = scrubListener;
+    }
+
+    private int indexOf(BaseChart chart) {
+        for (int i = 0; i < members.size(); i++) {
+            if (members.get(i).chart == chart) return i;
+        }
+        return -1;
+    }
+
+    private void onMemberScrubbed(BaseChart source, float x) {
+        final int index = source.getScrubIndex(x);
+        if (index < 0 || index == scrubIndex) return;
+
+        if (scrubIndex < 0 && source.getParent() != null) {
+            source.getParent().requestDisallowInterceptTouchEvent(true);
+        }
+        scrubIndex = index;
+
+        // every member invalidates within this frame callback, so they all draw in the same vsync
+        for (int i = 0; i < members.size(); i++) {
+            members.get(i).chart.showScrubIndex(index);
+        }
+
+        if (scrubListener != null) scrubListener.onScrubbed(index);
+    }
+
+    private void onMemberScrubEnded() {
+        if (scrubIndex < 0) return;
+
+        scrubIndex = -1;
+        for (int i = 0; i < members.size(); i++) {
+            members.get(i).chart.hideScrub();
+        }
+
+        if (scrubListener != null) scrubListener.onScrubEnded();
+    }
+
+    private final class Member implements ScrubGestureDetector.ScrubListener {
+        final BaseChart chart;
+        final ScrubGestureDetector detector;
+
+        Member(BaseChart chart, float touchSlop) {
+            this.chart = chart;
+            this.detector = new ScrubGestureDetector(this, touchSlop);
+            this.detector.setEnabled(true);
+        }
+
+        @Override
+        public void onScrubbed(float x, float y) {
+            onMemberScrubbed(chart, x);
+        }
+
+        @Override
+        public void onScrubEnded() {
+            onMemberScrubEnded();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.marungbukid.charts;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Per-chart render timings and counters reported to a {@link ChartMetricsListener}.
+ * <p>
+ * A single instance is owned by each chart and updated in place, so reading it never allocates.
+ * Copy the values you need if you want to keep them beyond the listener callback.
+ */
+public final class ChartMetrics {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({
+            Stage.POPULATE,
+            Stage.BOUNDS,
+            Stage.PATH,
+            Stage.DRAW
+    })
+    public @interface Stage {
+        /**
+         * The whole of {@link BaseChart#populatePath()}.
+         */
+        int POPULATE = 0;
+
+        /**
+         * Data bounds computation and scale setup.
+         */
+        int BOUNDS = 1;
+
+        /**
+         * Projection of the data points and building of the paths.
+         */
+        int PATH = 2;
+
+        /**
+         * The whole of {@code onDraw()}.
+         */
+        int DRAW = 3;
+    }
+
+    // Trace section names, indexed by stage
+    private static final String[] SECTION_NAMES = {
+            "Charts#populatePath",
+            "Charts#bounds",
+            "Charts#buildPath",
+            "Charts#onDraw"
+    };
+
+    private final long[] stageNanos = new long[SECTION_NAMES.length];
+    private int pointsIn;
+    private int pointsOut;
+    private long rebuildCount;
+
+    // rebuild rate is measured over windows of at least one second
+    private long rateWindowStartNanos = Long.MIN_VALUE;
+    private int rateWindowRebuilds;
+    private float rebuildsPerSecond;
+
+    ChartMetrics() {
+    }
+
+    static String sectionName(@Stage int stage) {
+        return SECTION_NAMES[stage];
+    }
+
+    void recordStage(@Stage int stage, long durationNanos) {
+        stageNanos[stage] = durationNanos;
+    }
+
+    void recordRebuild(int pointsIn, int pointsOut, long nowNanos) {
+        this.pointsIn = pointsIn;
+        this.pointsOut = pointsOut;
+        rebuildCount++;
+
+        if (rateWindowStartNanos == Long.MIN_VALUE) {
+            rateWindowStartNanos = nowNanos;
+        }
+
+        rateWindowRebuilds++;
+        final long elapsed = nowNanos - rateWindowStartNanos;
+        if (elapsed >= NANOS_PER_SECOND) {
+            rebuildsPerSecond = rateWindowRebuilds * (float) NANOS_PER_SECOND / elapsed;
+            rateWindowStartNanos = nowNanos;
+            rateWindowRebuilds = 0;
+        }
+    }
+
+    /**
+     * @return duration of the last {@code populatePath()} in nanoseconds.
+     */
+    public long getPopulateNanos() {
+        return stageNanos[Stage.POPULATE];
+    }
+
+    /**
+     * @return duration of the last bounds computation in nanoseconds.
+     */
+    public long getBoundsNanos() {
+        return stageNanos[Stage.BOUNDS];
+    }
+
+    /**
+     * @return duration of the last path build in nanoseconds.
+     */
+    public long getPathNanos() {
+        return stageNanos[Stage.PATH];
+    }
+
+    /**
+     * @return duration of the last {@code onDraw()} in nanoseconds.
+     */
+    public long getDrawNanos() {
+        return stageNanos[Stage.DRAW];
+    }
+
+    /**
+     * @return the number of adapter points read by the last rebuild.
+     */
+    public int getPointsIn() {
+        return pointsIn;
+    }
+
+    /**
+     * @return the number of points emitted into the geometry by the last rebuild.
+     */
+    public int getPointsOut() {
+        return pointsOut;
+    }
+
+    /**
+     * @return the total number of rebuilds since the listener was attached.
+     */
+    public long getRebuildCount() {
+        return rebuildCount;
+    }
+
+    /**
+     * @return the rebuild rate measured over the last completed one second window.
+     */
+    public float getRebuildsPerSecond() {
+        return rebuildsPerSecond;
+    }
+
+    void reset() {
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i] = 0;
+        }
+        pointsIn = 0;
+        pointsOut = 0;
+        rebuildCount = 0;
+        rateWindowStartNanos = Long.MIN_VALUE;
+        rateWindowRebuilds = 0;
+        rebuildsPerSecond = 0;
+    }
+}
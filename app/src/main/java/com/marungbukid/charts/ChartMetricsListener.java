@@ -0,0 +1,20 @@
+package com.marungbukid.charts;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives render timings from a chart. Set with {@link BaseChart#setMetricsListener}.
+ * <p>
+ * Callbacks run on the UI thread, inside the render pass, so keep them cheap.
+ */
+public interface ChartMetricsListener {
+    /**
+     * Called after the chart rebuilt its geometry from the adapter.
+     */
+    void onPathPopulated(@NonNull ChartMetrics metrics);
+
+    /**
+     * Called after the chart finished drawing a frame.
+     */
+    void onDrawn(@NonNull ChartMetrics metrics);
+}
@@ -0,0 +1,367 @@
+package com.marungbukid.charts.annotation;
+
+import android.database.DataSetObservable;
+import android.database.DataSetObserver;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChart;
+
+import java.util.Arrays;
+
+/**
+ * Event markers such as fills, orders, dividends or news, drawn on top of a chart.
+ * <p>
+ * Markers are kept in primitive arrays sorted by x, in the same data space as the adapter's
+ * {@code getX}. Each frame only the markers inside the visible x range are visited, found by
+ * binary search. Markers of one type that fall in the same cell of a pixel grid, two marker radii
+ * square, are drawn as a single larger cluster dot, and every type is drawn with one batched
+ * {@code drawPoints} call. A marker
+ * with a NaN y sits on the bottom edge of the data. Markers are shared data: one layer can be set
+ * on several charts.
+ */
+public final class AnnotationLayer {
+    /**
+     * Number of marker types, each with its own colour.
+     */
+    public static final int MAX_TYPES = 16;
+
+    // clusters are drawn this much larger than single markers
+    private static final float CLUSTER_SCALE = 1.6f;
+
+    private final DataSetObservable observable = new DataSetObservable();
+    private final float markerRadius;
+
+    // markers, sorted by x
+    private float[] xs = new float[16];
+    private float[] ys = new float[16];
+    private long[] ids = new long[16];
+    private int[] types = new int[16];
+    private int count;
+
+    private final Paint[] paints = new Paint[MAX_TYPES];
+    private final Paint[] clusterPaints = new Paint[MAX_TYPES];
+
+    // per-frame batches of (x, y) pairs and member counts per type, reused between frames
+    private final float[][] batches = new float[MAX_TYPES][];
+    private final int[][] batchCounts = new int[MAX_TYPES][];
+    private final int[] batchSizes = new int[MAX_TYPES];
+    // x bucket of each type's latest entries, and where in the batch that bucket's entries begin
+    private final int[] lastBuckets = new int[MAX_TYPES];
+    private final int[] bucketStarts = new int[MAX_TYPES];
+    private float[] clusterBatch = new float[16];
+
+    /**
+     * @param markerRadius radius of a single marker in pixels, also half the size of a cluster cell.
+     */
+    public AnnotationLayer(float markerRadius) {
+        this.markerRadius = markerRadius;
+        for (int type = 0; type < MAX_TYPES; type++) {
+            paints[type] = createPaint(0xff000000, 2 * markerRadius);
+            clusterPaints[type] = createPaint(0xff000000, 2 * markerRadius * CLUSTER_SCALE);
+        }
+    }
+
+    private static Paint createPaint(@ColorInt int color, float diameter) {
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setStrokeWidth(diameter);
+        paint.setColor(color);
+        return paint;
+    }
+
+    public void setTypeColor(int type, @ColorInt int color) {
+        paints[type].setColor(color);
+        clusterPaints[type].setColor(color);
+        observable.notifyChanged();
+    }
+
+    public float getMarkerRadius() {
+        return markerRadius;
+    }
+
+    /**
+     * Adds a marker, keeping the markers sorted. For many markers at once use
+     * {@link #setMarkers(long[], float[], float[], int[], int)}.
+     */
+    public void add(long id, float x, float y, int type) {
+        checkType(type);
+        ensureCapacity(count + 1);
+
+        // after any markers at the same x, so equal markers keep their insertion order
+        final int index = upperBound(x);
+        final int moved = count - index;
+        System.arraycopy(xs, index, xs, index + 1, moved);
+        System.arraycopy(ys, index, ys, index + 1, moved);
+        System.arraycopy(ids, index, ids, index + 1, moved);
+        System.arraycopy(types, index, types, index + 1, moved);
+
+        xs[index] = x;
+        ys[index] = y;
+        ids[index] = id;
+        types[index] = type;
+        count++;
+        observable.notifyChanged();
+    }
+
+    /**
+     * Replaces all markers with the first {@code count} entries of the arrays, which need not be
+     * sorted. The arrays are copied.
+     */
+    public void setMarkers(@NonNull long[] ids, @NonNull float[] xs, @NonNull float[] ys,
+                           @NonNull int[] types, int count) {
+        for (int i = 0; i < count; i++) {
+            checkType(types[i]);
+        }
+
+        // sort x keys together with their original position, without boxing
+        final long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) sortableBits(xs[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        this.xs = new float[Math.max(count, 16)];
+        this.ys = new float[this.xs.length];
+        this.ids = new long[this.xs.length];
+        this.types = new int[this.xs.length];
+        for (int i = 0; i < count; i++) {
+            final int from = (int) keys[i];
+            this.xs[i] = xs[from];
+            this.ys[i] = ys[from];
+            this.ids[i] = ids[from];
+            this.types[i] = types[from];
+        }
+        this.count = count;
+        observable.notifyChanged();
+    }
+
+    /**
+     * Removes the marker with the given id, if any.
+     */
+    public void remove(long id) {
+        for (int index = 0; index < count; index++) {
+            if (ids[index] != id) continue;
+
+            final int moved = count - index - 1;
+            System.arraycopy(xs, index + 1, xs, index, moved);
+            System.arraycopy(ys, index + 1, ys, index, moved);
+            System.arraycopy(ids, index + 1, ids, index, moved);
+            System.arraycopy(types, index + 1, types, index, moved);
+            count--;
+            observable.notifyChanged();
+            return;
+        }
+    }
+
+    public void clear() {
+        count = 0;
+        observable.notifyChanged();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    public int getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * Draws the markers inside the scale's content area.
+     */
+    public void draw(@NonNull Canvas canvas, @NonNull BaseChart.ScaleHelper scaleHelper) {
+        if (count == 0) return;
+
+        // markers just outside still show half of their dot
+        final int from = lowerBound(scaleHelper.getRawX(scaleHelper.getLeftPadding() - markerRadius));
+        final int to = upperBound(scaleHelper.getRawX(scaleHelper.getRightPadding() + markerRadius));
+        if (from >= to) return;
+
+        final float bottom = scaleHelper.getY(scaleHelper.getMinY());
+        final float bucketWidth = 2 * markerRadius;
+
+        Arrays.fill(batchSizes, 0);
+        Arrays.fill(lastBuckets, Integer.MIN_VALUE);
+        for (int i = from; i < to; i++) {
+            final int type = types[i];
+            final float x = scaleHelper.getX(xs[i]);
+            final float y = Float.isNaN(ys[i]) ? bottom : scaleHelper.getY(ys[i]);
+            final int bucket = (int) Math.floor(x / bucketWidth);
+
+            // markers come sorted, so a type's cluster can only be among the entries of its
+            // latest x bucket, one per y bucket
+            if (bucket == lastBuckets[type]) {
+                final int cluster = findCluster(type, (int) Math.floor(y / bucketWidth), bucketWidth);
+                if (cluster >= 0) {
+                    batchCounts[type][cluster]++;
+                    continue;
+                }
+            } else {
+                lastBuckets[type] = bucket;
+                bucketStarts[type] = batchSizes[type];
+            }
+
+            addToBatch(type, x, y);
+        }
+
+        for (int type = 0; type < MAX_TYPES; type++) {
+            final int size = batchSizes[type];
+            if (size == 0) continue;
+
+            // move clusters out of the batch, singles stay in place
+            final float[] batch = batches[type];
+            final int[] counts = batchCounts[type];
+            int singles = 0;
+            int clusters = 0;
+            for (int entry = 0; entry < size; entry++) {
+                if (counts[entry] == 1) {
+                    batch[2 * singles] = batch[2 * entry];
+                    batch[2 * singles + 1] = batch[2 * entry + 1];
+                    singles++;
+                } else {
+                    if (clusterBatch.length < 2 * (clusters + 1)) {
+                        clusterBatch = Arrays.copyOf(clusterBatch, clusterBatch.length * 2);
+                    }
+                    clusterBatch[2 * clusters] = batch[2 * entry];
+                    clusterBatch[2 * clusters + 1] = batch[2 * entry + 1];
+                    clusters++;
+                }
+            }
+
+            if (singles > 0) canvas.drawPoints(batch, 0, 2 * singles, paints[type]);
+            if (clusters > 0) canvas.drawPoints(clusterBatch, 0, 2 * clusters, clusterPaints[type]);
+        }
+    }
+
+    /**
+     * @return the entry of the type's latest x bucket in the given y bucket, or -1.
+     */
+    private int findCluster(int type, int yBucket, float bucketWidth) {
+        final float[] batch = batches[type];
+        for (int entry = bucketStarts[type]; entry < batchSizes[type]; entry++) {
+            if ((int) Math.floor(batch[2 * entry + 1] / bucketWidth) == yBucket) return entry;
+        }
+        return -1;
+    }
+
+    private void addToBatch(int type, float x, float y) {
+        final int size = batchSizes[type];
+        if (batches[type] == null) {
+            batches[type] = new float[32];
+            batchCounts[type] = new int[16];
+        } else if (batchCounts[type].length == size) {
+            batches[type] = Arrays.copyOf(batches[type], 4 * size);
+            batchCounts[type] = Arrays.copyOf(batchCounts[type], 2 * size);
+        }
+
+        batches[type][2 * size] = x;
+        batches[type][2 * size + 1] = y;
+        batchCounts[type][size] = 1;
+        batchSizes[type] = size + 1;
+    }
+
+    /**
+     * @return the index of the marker nearest to the view x, or -1 if none is within
+     * {@code maxDistance} pixels.
+     */
+    public int findNearest(float viewX, @NonNull BaseChart.ScaleHelper scaleHelper, float maxDistance) {
+        if (count == 0) return -1;
+
+        final int index = lowerBound(scaleHelper.getRawX(viewX));
+        int nearest = -1;
+        float nearestDistance = maxDistance;
+        for (int candidate = index - 1; candidate <= index; candidate++) {
+            if (candidate < 0 || candidate >= count) continue;
+
+            final float distance = Math.abs(scaleHelper.getX(xs[candidate]) - viewX);
+            if (distance <= nearestDistance) {
+                nearest = candidate;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    public void registerObserver(@NonNull DataSetObserver observer) {
+        observable.registerObserver(observer);
+    }
+
+    public void unregisterObserver(@NonNull DataSetObserver observer) {
+        observable.unregisterObserver(observer);
+    }
+
+    /**
+     * @return the first index whose x is not below {@code x}.
+     */
+    private int lowerBound(float x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (xs[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first index whose x is above {@code x}.
+     */
+    private int upperBound(float x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (xs[mid] <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (xs.length >= capacity) return;
+
+        final int newLength = Math.max(capacity, xs.length * 2);
+        xs = Arrays.copyOf(xs, newLength);
+        ys = Arrays.copyOf(ys, newLength);
+        ids = Arrays.copyOf(ids, newLength);
+        types = Arrays.copyOf(types, newLength);
+    }
+
+    private static void checkType(int type) {
+        if (type < 0 || type >= MAX_TYPES) {
+            throw new IllegalArgumentException("type must be in [0, " + MAX_TYPES + "): " + type);
+        }
+    }
+
+    /**
+     * @return the bits of {@code value} as an int that sorts like the float.
+     */
+    private static int sortableBits(float value) {
+        final int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+}
@@ -0,0 +1,273 @@
+package com.marungbukid.charts.data;
+
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+/**
+ * Adapter over a primitive value array, for series too large to hold as entries.
+ * <p>
+ * Large series can be prepared off the UI thread with {@link #reduceAsync(int)}: bounds and a
+ * min/max decimation to the requested number of points are computed on
+ * {@link ParallelReduction#getPool()}, then published on the UI thread. Until then, and for
+ * series below the parallel threshold, every point is drawn.
+ * <p>
+ * The values, timestamps and reduction are published together as one immutable
+ * {@link #pin() pinned} view, so charts reading on other threads never see a reduction swapped
+ * in halfway through a pass.
+ */
+public class ArrayChartAdapter extends BaseChartAdapter<ChartPoint> {
+    private int parallelThreshold = ParallelReduction.DEFAULT_PARALLEL_THRESHOLD;
+
+    @NonNull
+    private volatile Data data;
+    private int version;
+    // bumped on every data change so late reductions of older data are dropped
+    private int generation;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public ArrayChartAdapter() {
+        this(new float[0]);
+    }
+
+    public ArrayChartAdapter(@NonNull float[] values) {
+        data = new Data(values, null, null, null, 0, null, version);
+    }
+
+    /**
+     * Replaces the data. The arrays are used as they are, not copied, and must not be modified
+     * afterwards.
+     *
+     * @param timestamps optional timestamps, same length as values.
+     */
+    @MainThread
+    public void setValues(@NonNull float[] values, @Nullable long[] timestamps) {
+        if (timestamps != null && timestamps.length != values.length) {
+            throw new IllegalArgumentException("timestamps and values differ in length");
+        }
+
+        generation++;
+        data = new Data(values, timestamps, null, null, 0, null, ++version);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Sets the size from which bounds and decimation are computed in parallel.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Computes bounds and a decimation to about {@code targetPoints} points in the background,
+     * then swaps them in and notifies observers. A {@code targetPoints} of twice the chart width
+     * in pixels keeps every visible extreme.
+     */
+    @MainThread
+    public void reduceAsync(int targetPoints) {
+        final Data source = data;
+        final int count = source.values.length;
+        final int buckets = Math.max(1, targetPoints / 2);
+        final int requestGeneration = ++generation;
+        final int threshold = parallelThreshold;
+
+        ParallelReduction.getPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                final float[] newBounds = ParallelReduction.bounds(source.values, count, threshold);
+
+                int[] indices = null;
+                float[] y = null;
+                int reduced = 0;
+                if (count > targetPoints) {
+                    indices = new int[2 * buckets];
+                    y = new float[2 * buckets];
+                    reduced = ParallelReduction.decimate(source.values, count, buckets, indices, y, threshold);
+                }
+
+                final int[] newIndices = indices;
+                final float[] newY = y;
+                final int newCount = reduced;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requestGeneration != generation) return;
+
+                        data = new Data(source.values, source.timestamps, newIndices, newY,
+                                newCount, newBounds, ++version);
+                        notifyDataSetChanged();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return the current values, timestamps and reduction, which never change. Any thread.
+     */
+    @NonNull
+    @Override
+    public BaseChartAdapter<ChartPoint> pin() {
+        return data;
+    }
+
+    /**
+     * @return the number of points drawn, which is lower than the source size once reduced.
+     */
+    @Override
+    public int getCount() {
+        return data.getCount();
+    }
+
+    /**
+     * @return the source array index the drawn point at {@code index} comes from.
+     */
+    public int getSourceIndex(int index) {
+        return data.getSourceIndex(index);
+    }
+
+    @Override
+    public ChartPoint getItem(int index) {
+        return data.getItem(index);
+    }
+
+    @Override
+    public float getX(int index) {
+        return data.getX(index);
+    }
+
+    @Override
+    public float getY(int index) {
+        return data.getY(index);
+    }
+
+    @Override
+    public int getDataVersion() {
+        return data.getDataVersion();
+    }
+
+    /**
+     * @return the bounds of every source value, from the background reduction if it ran, else
+     * scanned once on the calling thread and kept until the values change. The scan is
+     * sequential, so a UI thread never blocks on the fork/join pool.
+     */
+    @NonNull
+    @Override
+    public RectF getDataBounds() {
+        return data.getDataBounds();
+    }
+
+    /**
+     * One published state of the adapter.
+     */
+    private final class Data extends BaseChartAdapter<ChartPoint> {
+        @NonNull
+        final float[] values;
+        @Nullable
+        final long[] timestamps;
+        // reduction result, the source index and value of each kept point
+        @Nullable
+        private final int[] reducedIndices;
+        @Nullable
+        private final float[] reducedY;
+        private final int reducedCount;
+        private final int version;
+        // {min, max} of the values, computed on first use. A race computes the same values twice.
+        @Nullable
+        private volatile float[] bounds;
+
+        Data(
+                @NonNull float[] values,
+                @Nullable long[] timestamps,
+                @Nullable int[] reducedIndices,
+                @Nullable float[] reducedY,
+                int reducedCount,
+                @Nullable float[] bounds,
+                int version
+        ) {
+            this.values = values;
+            this.timestamps = timestamps;
+            this.reducedIndices = reducedIndices;
+            this.reducedY = reducedY;
+            this.reducedCount = reducedCount;
+            this.bounds = bounds;
+            this.version = version;
+        }
+
+        @NonNull
+        @Override
+        public BaseChartAdapter<ChartPoint> pin() {
+            return this;
+        }
+
+        @Override
+        public int getCount() {
+            return reducedIndices != null ? reducedCount : values.length;
+        }
+
+        int getSourceIndex(int index) {
+            return reducedIndices != null ? reducedIndices[index] : index;
+        }
+
+        @Override
+        public ChartPoint getItem(int index) {
+            final int sourceIndex = getSourceIndex(index);
+            final long timestamp = timestamps != null ? timestamps[sourceIndex] : Long.MIN_VALUE;
+            return new ChartPoint(sourceIndex, timestamp, values[sourceIndex]);
+        }
+
+        @Override
+        public float getX(int index) {
+            return getSourceIndex(index);
+        }
+
+        @Override
+        public float getY(int index) {
+            return reducedY != null ? reducedY[index] : values[index];
+        }
+
+        @Override
+        public boolean hasBaseLine() {
+            return ArrayChartAdapter.this.hasBaseLine();
+        }
+
+        @Override
+        public float getBaseLine() {
+            return ArrayChartAdapter.this.getBaseLine();
+        }
+
+        @Override
+        public int getDataVersion() {
+            return version;
+        }
+
+        @NonNull
+        @Override
+        public RectF getDataBounds() {
+            final int count = values.length;
+            if (count == 0) return super.getDataBounds();
+
+            float[] result = bounds;
+            if (result == null) {
+                result = ParallelReduction.sequentialBounds(values, count);
+                bounds = result;
+            }
+
+            float minY = result[0];
+            float maxY = result[1];
+            if (hasBaseLine()) {
+                minY = Math.min(minY, getBaseLine());
+                maxY = Math.max(maxY, getBaseLine());
+            }
+
+            return new RectF(0, minY, count - 1, maxY);
+        }
+    }
+}
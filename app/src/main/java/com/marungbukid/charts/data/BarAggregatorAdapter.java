@@ -0,0 +1,403 @@
+package com.marungbukid.charts.data;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChart;
+import com.marungbukid.charts.BaseChartAdapter;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Adapter that aggregates raw (timestamp, price, size) ticks into time-bucketed OHLCV bars.
+ * <p>
+ * Ticks are never stored. Each tick updates the open bar in place, or starts a new bar once its
+ * bucket has passed. Bars live in tiers of increasing duration: when a tier is full, its oldest
+ * bar is merged into the newest bar of the next coarser tier, or starts one there, so recent
+ * history stays detailed while memory stays bounded over a whole session. The coarsest tier
+ * drops its oldest bars. The chart shows the close of every bar, oldest first; x is seconds
+ * since the first bar, so bars of different duration stay in proportion.
+ * <p>
+ * Buckets are aligned to the epoch shifted by {@code alignmentOffsetMillis}, for example a time
+ * zone's raw offset so daily bars start at local midnight. Ticks older than the open bar are
+ * counted and dropped. Ticks must be added on the UI thread; off-thread feeds can go through a
+ * {@link SpscPointQueue} first.
+ */
+public class BarAggregatorAdapter extends BaseChartAdapter<OhlcBar> {
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long WEEK = 7 * DAY;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({
+            Delta.NONE,
+            Delta.BAR_CHANGED,
+            Delta.BAR_APPENDED,
+    })
+    public @interface Delta {
+        /**
+         * The tick was dropped.
+         */
+        int NONE = 0;
+
+        /**
+         * The tick updated the last bar.
+         */
+        int BAR_CHANGED = 1;
+
+        /**
+         * The tick started a new last bar. Older bars may have been merged into coarser ones.
+         */
+        int BAR_APPENDED = 2;
+    }
+
+    public interface OnBarDeltaListener {
+        /**
+         * Called after every tick that changed the bars, before observers are notified.
+         *
+         * @param index the index of the last bar.
+         */
+        void onBarDelta(@Delta int delta, int index);
+    }
+
+    // finest tier first
+    private final Tier[] tiers;
+    private final long alignmentOffsetMillis;
+    @Nullable
+    private OnBarDeltaListener deltaListener;
+
+    private boolean hasOrigin;
+    private long originTime;
+    private long lastTickTime = Long.MIN_VALUE;
+    private long lateTickCount;
+    // lowest index changed since observers were last notified
+    private int firstChanged = Integer.MAX_VALUE;
+
+    /**
+     * @param durations  bar duration of each tier in milliseconds, finest first, each a multiple
+     *                   of the previous one.
+     * @param capacities bars kept in each tier.
+     */
+    public BarAggregatorAdapter(
+            @NonNull long[] durations,
+            @NonNull int[] capacities,
+            long alignmentOffsetMillis
+    ) {
+        if (durations.length == 0 || durations.length != capacities.length) {
+            throw new IllegalArgumentException("one capacity per duration required");
+        }
+
+        tiers = new Tier[durations.length];
+        for (int i = 0; i < durations.length; i++) {
+            if (durations[i] <= 0 || capacities[i] < 1) {
+                throw new IllegalArgumentException("durations and capacities must be positive");
+            }
+            if (i > 0 && durations[i] % durations[i - 1] != 0) {
+                throw new IllegalArgumentException(
+                        "duration " + durations[i] + " is not a multiple of " + durations[i - 1]);
+            }
+            tiers[i] = new Tier(durations[i], capacities[i]);
+        }
+        this.alignmentOffsetMillis = alignmentOffsetMillis;
+    }
+
+    /**
+     * @return an aggregator with tiers suited to showing the given range.
+     */
+    @NonNull
+    public static BarAggregatorAdapter forChartRange(
+            @BaseChart.ChartRange int chartRange,
+            long alignmentOffsetMillis
+    ) {
+        switch (chartRange) {
+            case BaseChart.ChartRange.ONE_DAY:
+                // four hours of minute bars, then a full day of five minute bars
+                return new BarAggregatorAdapter(
+                        new long[]{MINUTE, 5 * MINUTE}, new int[]{240, 288}, alignmentOffsetMillis);
+            case BaseChart.ChartRange.ONE_MONTH:
+                return new BarAggregatorAdapter(
+                        new long[]{15 * MINUTE, HOUR}, new int[]{192, 744}, alignmentOffsetMillis);
+            case BaseChart.ChartRange.THREE_MONTHS:
+            case BaseChart.ChartRange.SIX_MONTHS:
+                return new BarAggregatorAdapter(
+                        new long[]{HOUR, DAY}, new int[]{168, 186}, alignmentOffsetMillis);
+            case BaseChart.ChartRange.YTD:
+            case BaseChart.ChartRange.ONE_YEAR:
+                return new BarAggregatorAdapter(
+                        new long[]{DAY, WEEK}, new int[]{31, 53}, alignmentOffsetMillis);
+            case BaseChart.ChartRange.THREE_YEARS:
+            case BaseChart.ChartRange.FIVE_YEARS:
+                return new BarAggregatorAdapter(
+                        new long[]{DAY, WEEK}, new int[]{31, 261}, alignmentOffsetMillis);
+            default:
+                throw new IllegalArgumentException("Unknown chart range: " + chartRange);
+        }
+    }
+
+    public void setOnBarDeltaListener(@Nullable OnBarDeltaListener deltaListener) {
+        this.deltaListener = deltaListener;
+    }
+
+    /**
+     * Adds a tick and notifies observers if it changed the bars.
+     */
+    @MainThread
+    @Delta
+    public int addTick(long timestamp, float price, float size) {
+        final int delta = aggregate(timestamp, price, size);
+        if (delta != Delta.NONE) {
+            notifyChanged();
+        }
+        return delta;
+    }
+
+    /**
+     * Adds {@code count} ticks with a single notification.
+     *
+     * @return the number of ticks that changed the bars.
+     */
+    @MainThread
+    public int addTicks(@NonNull long[] timestamps, @NonNull float[] prices, @NonNull float[] sizes,
+                        int count) {
+        int accepted = 0;
+        for (int i = 0; i < count; i++) {
+            if (aggregate(timestamps[i], prices[i], sizes[i]) != Delta.NONE) accepted++;
+        }
+        if (accepted > 0) {
+            notifyChanged();
+        }
+        return accepted;
+    }
+
+    /**
+     * Notifies observers, telling them which leading bars the ticks since the last notification
+     * kept.
+     */
+    private void notifyChanged() {
+        final int index = firstChanged;
+        firstChanged = Integer.MAX_VALUE;
+        notifyDataSetChangedFrom(index);
+    }
+
+    /**
+     * @return ticks dropped because they were older than the open bar.
+     */
+    public long getLateTickCount() {
+        return lateTickCount;
+    }
+
+    @Delta
+    private int aggregate(long timestamp, float price, float size) {
+        final Tier finest = tiers[0];
+        final long bucket = align(timestamp, finest.duration);
+
+        if (finest.count > 0) {
+            final int last = finest.slot(finest.count - 1);
+            final long openTime = finest.openTimes[last];
+
+            if (bucket == openTime) {
+                finest.highs[last] = Math.max(finest.highs[last], price);
+                finest.lows[last] = Math.min(finest.lows[last], price);
+                finest.volumes[last] += size;
+                // a tick arriving late within the open bar does not move the close
+                if (timestamp >= lastTickTime) {
+                    finest.closes[last] = price;
+                    lastTickTime = timestamp;
+                }
+                firstChanged = Math.min(firstChanged, getCount() - 1);
+                return dispatch(Delta.BAR_CHANGED);
+            }
+
+            if (bucket < openTime) {
+                lateTickCount++;
+                return Delta.NONE;
+            }
+        }
+
+        if (!hasOrigin) {
+            hasOrigin = true;
+            originTime = bucket;
+        }
+
+        lastTickTime = timestamp;
+        firstChanged = Math.min(firstChanged, getCount());
+        append(0, bucket, price, price, price, price, size);
+        return dispatch(Delta.BAR_APPENDED);
+    }
+
+    @Delta
+    private int dispatch(@Delta int delta) {
+        if (deltaListener != null) {
+            deltaListener.onBarDelta(delta, getCount() - 1);
+        }
+        return delta;
+    }
+
+    /**
+     * Appends a bar to a tier, first aging its oldest bar into the next tier if it is full.
+     */
+    private void append(int tierIndex, long openTime, float open, float high, float low,
+                        float close, float volume) {
+        final Tier tier = tiers[tierIndex];
+        if (tier.count == tier.capacity) {
+            // aging moves bars between tiers, coarsest first, so every index may change
+            firstChanged = 0;
+            final int oldest = tier.start;
+            if (tierIndex + 1 < tiers.length) {
+                merge(tierIndex + 1, tier.openTimes[oldest], tier.opens[oldest],
+                        tier.highs[oldest], tier.lows[oldest], tier.closes[oldest],
+                        tier.volumes[oldest]);
+            }
+            tier.removeOldest();
+        }
+        tier.add(openTime, open, high, low, close, volume);
+    }
+
+    /**
+     * Folds a bar that aged out of a finer tier into the newest bar of a coarser one.
+     */
+    private void merge(int tierIndex, long openTime, float open, float high, float low,
+                       float close, float volume) {
+        final Tier tier = tiers[tierIndex];
+        final long bucket = align(openTime, tier.duration);
+
+        if (tier.count > 0) {
+            final int last = tier.slot(tier.count - 1);
+            if (tier.openTimes[last] == bucket) {
+                tier.highs[last] = Math.max(tier.highs[last], high);
+                tier.lows[last] = Math.min(tier.lows[last], low);
+                tier.closes[last] = close;
+                tier.volumes[last] += volume;
+                return;
+            }
+        }
+
+        append(tierIndex, bucket, open, high, low, close, volume);
+    }
+
+    private long align(long timestamp, long duration) {
+        final long shifted = timestamp + alignmentOffsetMillis;
+        long offset = shifted % duration;
+        if (offset < 0) offset += duration;
+        return timestamp - offset;
+    }
+
+    @Override
+    public int getCount() {
+        int count = 0;
+        for (Tier tier : tiers) {
+            count += tier.count;
+        }
+        return count;
+    }
+
+    @Override
+    public OhlcBar getItem(int index) {
+        final long location = locate(index);
+        final Tier tier = tiers[(int) (location >>> 32)];
+        final int slot = (int) location;
+        return new OhlcBar(index, tier.openTimes[slot], tier.duration, tier.opens[slot],
+                tier.highs[slot], tier.lows[slot], tier.closes[slot], tier.volumes[slot]);
+    }
+
+    @Override
+    public float getX(int index) {
+        final long location = locate(index);
+        final Tier tier = tiers[(int) (location >>> 32)];
+        return (tier.openTimes[(int) location] - originTime) / 1000f;
+    }
+
+    @Override
+    public float getY(int index) {
+        final long location = locate(index);
+        final Tier tier = tiers[(int) (location >>> 32)];
+        return tier.closes[(int) location];
+    }
+
+    public long getOpenTime(int index) {
+        final long location = locate(index);
+        final Tier tier = tiers[(int) (location >>> 32)];
+        return tier.openTimes[(int) location];
+    }
+
+    public float getHigh(int index) {
+        final long location = locate(index);
+        final Tier tier = tiers[(int) (location >>> 32)];
+        return tier.highs[(int) location];
+    }
+
+    public float getLow(int index) {
+        final long location = locate(index);
+        final Tier tier = tiers[(int) (location >>> 32)];
+        return tier.lows[(int) location];
+    }
+
+    public float getVolume(int index) {
+        final long location = locate(index);
+        final Tier tier = tiers[(int) (location >>> 32)];
+        return tier.volumes[(int) location];
+    }
+
+    /**
+     * @return the tier holding the bar at {@code index} in the high half and its ring slot in
+     * the low half. Coarsest bars come first.
+     */
+    private long locate(int index) {
+        for (int i = tiers.length - 1; i >= 0; i--) {
+            final Tier tier = tiers[i];
+            if (index < tier.count) {
+                return ((long) i << 32) | tier.slot(index);
+            }
+            index -= tier.count;
+        }
+        throw new IndexOutOfBoundsException("index " + index + " past the last bar");
+    }
+
+    /**
+     * Bars of one duration in a fixed-size ring, oldest at start.
+     */
+    private static final class Tier {
+        final long duration;
+        final int capacity;
+        final long[] openTimes;
+        final float[] opens, highs, lows, closes, volumes;
+        int start;
+        int count;
+
+        Tier(long duration, int capacity) {
+            this.duration = duration;
+            this.capacity = capacity;
+            openTimes = new long[capacity];
+            opens = new float[capacity];
+            highs = new float[capacity];
+            lows = new float[capacity];
+            closes = new float[capacity];
+            volumes = new float[capacity];
+        }
+
+        int slot(int index) {
+            final int slot = start + index;
+            return slot < capacity ? slot : slot - capacity;
+        }
+
+        void add(long openTime, float open, float high, float low, float close, float volume) {
+            final int slot = slot(count);
+            openTimes[slot] = openTime;
+            opens[slot] = open;
+            highs[slot] = high;
+            lows[slot] = low;
+            closes[slot] = close;
+            volumes[slot] = volume;
+            count++;
+        }
+
+        void removeOldest() {
+            start = start + 1 == capacity ? 0 : start + 1;
+            count--;
+        }
+    }
+}
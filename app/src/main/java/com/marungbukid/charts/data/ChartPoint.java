@@ -0,0 +1,34 @@
+package com.marungbukid.charts.data;
+
+import com.marungbukid.charts.BaseChartEntry;
+
+/**
+ * A plain (index, timestamp, value) entry, created on demand by the primitive adapters of this
+ * package for scrub listeners.
+ */
+public class ChartPoint extends BaseChartEntry {
+    private final int index;
+    private final long timestamp;
+    private final float value;
+
+    public ChartPoint(int index, long timestamp, float value) {
+        this.index = index;
+        this.timestamp = timestamp;
+        this.value = value;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public float getValue() {
+        return value;
+    }
+
+    @Override
+    public long getDateTime() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,69 @@
+package com.marungbukid.charts.data;
+
+import com.marungbukid.charts.BaseChartEntry;
+
+/**
+ * An open/high/low/close/volume bar, created on demand by {@link BarAggregatorAdapter} for scrub
+ * listeners. Its value is the close.
+ */
+public class OhlcBar extends BaseChartEntry {
+    private final int index;
+    private final long openTime;
+    private final long duration;
+    private final float open, high, low, close;
+    private final float volume;
+
+    public OhlcBar(int index, long openTime, long duration, float open, float high, float low,
+                   float close, float volume) {
+        this.index = index;
+        this.openTime = openTime;
+        this.duration = duration;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public float getValue() {
+        return close;
+    }
+
+    /**
+     * @return the start of the bar's time bucket.
+     */
+    @Override
+    public long getDateTime() {
+        return openTime;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public float getOpen() {
+        return open;
+    }
+
+    public float getHigh() {
+        return high;
+    }
+
+    public float getLow() {
+        return low;
+    }
+
+    public float getClose() {
+        return close;
+    }
+
+    public float getVolume() {
+        return volume;
+    }
+}
@@ -0,0 +1,411 @@
+package com.marungbukid.charts.data;
+
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Adapter over a long series with a known size whose values are loaded lazily, in fixed-size
+ * chunks, from a {@link ChunkSource} such as a file or a database.
+ * <p>
+ * Only a per-chunk summary is read up front, which gives exact bounds and a coarse line: a point
+ * of a chunk that is not loaded yet is interpolated between the chunk's first and last value.
+ * Chunks of the range set with {@link #setVisibleRange(int, int)}, plus {@code prefetchChunks}
+ * on either side, are loaded in the background and swapped in as they arrive. At most
+ * {@code maxChunks} chunks are kept, the least recently used outside the visible range are
+ * dropped first. A load that throws is reported to the {@link OnLoadFailedListener} and tried
+ * again the next time its chunk is needed, or for the summary on the next
+ * {@link #setVisibleRange(int, int)}. All methods are for the UI thread.
+ */
+public class PagingChartAdapter extends BaseChartAdapter<ChartPoint> {
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final String TAG = "PagingChartAdapter";
+
+    /**
+     * Chunk index passed to {@link OnLoadFailedListener} when loading the summary failed.
+     */
+    public static final int SUMMARY = -1;
+
+    /**
+     * Where the values come from. Called on the loader thread.
+     */
+    public interface ChunkSource {
+        /**
+         * Fills the summary of every chunk of {@code chunkSize} points, the last chunk may be
+         * shorter.
+         */
+        @WorkerThread
+        void loadSummary(int chunkSize, @NonNull float[] first, @NonNull float[] last,
+                         @NonNull float[] min, @NonNull float[] max);
+
+        /**
+         * Loads points {@code [start, start + count)}.
+         *
+         * @param timestamps receives the timestamp of each point, or is left as is if there
+         *                   are none.
+         */
+        @WorkerThread
+        void loadChunk(int start, int count, @NonNull long[] timestamps, @NonNull float[] values);
+    }
+
+    /**
+     * Told on the UI thread about a load the {@link ChunkSource} failed with an exception.
+     */
+    public interface OnLoadFailedListener {
+        /**
+         * @param chunk the chunk index, or {@link #SUMMARY}.
+         */
+        void onLoadFailed(int chunk, @NonNull RuntimeException error);
+    }
+
+    private static volatile ExecutorService defaultExecutor;
+
+    private final ChunkSource source;
+    private final int totalCount;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final int maxChunks;
+    private final int prefetchChunks;
+    private final Executor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // summary, null until loaded
+    @Nullable
+    private float[] firstValues, lastValues, minValues, maxValues;
+    private boolean summaryLoading;
+    @Nullable
+    private OnLoadFailedListener loadFailedListener;
+
+    // loaded chunks by chunk index, with the time of their last use for eviction
+    private final Chunk[] chunks;
+    private final long[] lastUsed;
+    private final boolean[] loading;
+    private int loadedCount;
+    private long useClock;
+
+    private int visibleFromChunk = 0;
+    private int visibleToChunk = -1;
+    private boolean notifyScheduled;
+
+    /**
+     * @param maxChunks      chunks kept in memory, should cover the visible range and prefetch.
+     * @param prefetchChunks chunks loaded ahead on either side of the visible range.
+     */
+    public PagingChartAdapter(
+            @NonNull ChunkSource source,
+            int totalCount,
+            int chunkSize,
+            int maxChunks,
+            int prefetchChunks
+    ) {
+        this(source, totalCount, chunkSize, maxChunks, prefetchChunks, getDefaultExecutor());
+    }
+
+    public PagingChartAdapter(
+            @NonNull ChunkSource source,
+            int totalCount,
+            int chunkSize,
+            int maxChunks,
+            int prefetchChunks,
+            @NonNull Executor executor
+    ) {
+        if (totalCount < 0 || chunkSize < 1 || maxChunks < 1 || prefetchChunks < 0) {
+            throw new IllegalArgumentException("invalid paging configuration");
+        }
+
+        this.source = source;
+        this.totalCount = totalCount;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) ((totalCount + (long) chunkSize - 1) / chunkSize);
+        this.maxChunks = maxChunks;
+        this.prefetchChunks = prefetchChunks;
+        this.executor = executor;
+
+        chunks = new Chunk[chunkCount];
+        lastUsed = new long[chunkCount];
+        loading = new boolean[chunkCount];
+
+        loadSummary();
+    }
+
+    /**
+     * @return a single loader thread shared by all paging adapters that were not given an
+     * executor, so sources are never read concurrently by default.
+     */
+    @NonNull
+    private static ExecutorService getDefaultExecutor() {
+        ExecutorService result = defaultExecutor;
+        if (result == null) {
+            synchronized (PagingChartAdapter.class) {
+                result = defaultExecutor;
+                if (result == null) {
+                    result = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "PagingChartAdapter");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    defaultExecutor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public void setOnLoadFailedListener(@Nullable OnLoadFailedListener listener) {
+        this.loadFailedListener = listener;
+    }
+
+    private void loadSummary() {
+        summaryLoading = true;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final float[] first = new float[chunkCount];
+                final float[] last = new float[chunkCount];
+                final float[] min = new float[chunkCount];
+                final float[] max = new float[chunkCount];
+                boolean loaded = false;
+                RuntimeException error = null;
+                try {
+                    source.loadSummary(chunkSize, first, last, min, max);
+                    loaded = true;
+                } catch (RuntimeException e) {
+                    error = e;
+                } finally {
+                    // whatever happened, the summary must not stay marked as loading
+                    final boolean success = loaded;
+                    final RuntimeException failure = error;
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            summaryLoading = false;
+                            if (success) {
+                                firstValues = first;
+                                lastValues = last;
+                                minValues = min;
+                                maxValues = max;
+                                notifyDataSetChanged();
+                            } else {
+                                dispatchLoadFailed(SUMMARY, failure);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the range of points on screen. Its chunks and their neighbours are loaded if needed.
+     */
+    @MainThread
+    public void setVisibleRange(int fromIndex, int toIndex) {
+        if (chunkCount == 0) return;
+        if (firstValues == null && !summaryLoading) loadSummary();
+
+        visibleFromChunk = clampChunk(fromIndex / chunkSize);
+        visibleToChunk = clampChunk(toIndex / chunkSize);
+
+        final long now = ++useClock;
+        for (int chunk = visibleFromChunk; chunk <= visibleToChunk; chunk++) {
+            lastUsed[chunk] = now;
+            requestChunk(chunk);
+        }
+
+        // nearest neighbours first, so a scroll in either direction finds its next chunk soonest
+        for (int distance = 1; distance <= prefetchChunks; distance++) {
+            if (visibleFromChunk - distance >= 0) requestChunk(visibleFromChunk - distance);
+            if (visibleToChunk + distance < chunkCount) requestChunk(visibleToChunk + distance);
+        }
+    }
+
+    private int clampChunk(int chunk) {
+        return Math.max(0, Math.min(chunk, chunkCount - 1));
+    }
+
+    /**
+     * @return true if the point's chunk is loaded, false if its value is still approximated.
+     */
+    public boolean isLoaded(int index) {
+        return chunks[index / chunkSize] != null;
+    }
+
+    private void requestChunk(final int chunk) {
+        if (chunks[chunk] != null || loading[chunk]) return;
+
+        loading[chunk] = true;
+        final int start = chunk * chunkSize;
+        final int count = Math.min(chunkSize, totalCount - start);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long[] timestamps = new long[count];
+                Arrays.fill(timestamps, NO_TIMESTAMP);
+                final float[] values = new float[count];
+                boolean loaded = false;
+                RuntimeException error = null;
+                try {
+                    source.loadChunk(start, count, timestamps, values);
+                    loaded = true;
+                } catch (RuntimeException e) {
+                    error = e;
+                } finally {
+                    // a failed chunk is requested again the next time it is needed
+                    final boolean success = loaded;
+                    final RuntimeException failure = error;
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            loading[chunk] = false;
+                            if (success) {
+                                addChunk(chunk, new Chunk(timestamps, values));
+                            } else {
+                                dispatchLoadFailed(chunk, failure);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void dispatchLoadFailed(int chunk, @Nullable RuntimeException error) {
+        // an Error is left to the loader thread, there is nothing to report here
+        if (error == null) return;
+
+        if (loadFailedListener != null) {
+            loadFailedListener.onLoadFailed(chunk, error);
+        } else {
+            Log.w(TAG, "Loading " + (chunk == SUMMARY ? "the summary" : "chunk " + chunk)
+                    + " failed", error);
+        }
+    }
+
+    private void addChunk(int chunk, Chunk loaded) {
+        if (chunks[chunk] == null) loadedCount++;
+        chunks[chunk] = loaded;
+        if (lastUsed[chunk] == 0) lastUsed[chunk] = ++useClock;
+
+        while (loadedCount > maxChunks) {
+            if (!evictLeastRecentlyUsed()) break;
+        }
+
+        // one notification for all chunks arriving in the same loop iteration
+        if (!notifyScheduled) {
+            notifyScheduled = true;
+            mainHandler.post(notifyLoaded);
+        }
+    }
+
+    private boolean evictLeastRecentlyUsed() {
+        int oldest = -1;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (chunks[chunk] == null) continue;
+            if (chunk >= visibleFromChunk && chunk <= visibleToChunk) continue;
+            if (oldest < 0 || lastUsed[chunk] < lastUsed[oldest]) oldest = chunk;
+        }
+        if (oldest < 0) return false;
+
+        chunks[oldest] = null;
+        loadedCount--;
+        return true;
+    }
+
+    private final Runnable notifyLoaded = new Runnable() {
+        @Override
+        public void run() {
+            notifyScheduled = false;
+            notifyDataSetChanged();
+        }
+    };
+
+    /**
+     * @return the total size once the summary is loaded, 0 before.
+     */
+    @Override
+    public int getCount() {
+        return firstValues != null ? totalCount : 0;
+    }
+
+    @Override
+    public ChartPoint getItem(int index) {
+        final Chunk chunk = chunks[index / chunkSize];
+        if (chunk == null) {
+            // scrubbed into a chunk that is not there yet
+            requestChunk(index / chunkSize);
+            return new ChartPoint(index, NO_TIMESTAMP, getY(index));
+        }
+        final int offset = index % chunkSize;
+        return new ChartPoint(index, chunk.timestamps[offset], chunk.values[offset]);
+    }
+
+    @Override
+    public float getY(int index) {
+        final int chunkIndex = index / chunkSize;
+        final int offset = index - chunkIndex * chunkSize;
+        final Chunk chunk = chunks[chunkIndex];
+        if (chunk != null) return chunk.values[offset];
+
+        // interpolate across the chunk from its summary
+        final int length = Math.min(chunkSize, totalCount - chunkIndex * chunkSize);
+        final float first = firstValues[chunkIndex];
+        if (length < 2) return first;
+        return first + (lastValues[chunkIndex] - first) * offset / (length - 1);
+    }
+
+    public long getTimestamp(int index) {
+        final Chunk chunk = chunks[index / chunkSize];
+        return chunk != null ? chunk.timestamps[index % chunkSize] : NO_TIMESTAMP;
+    }
+
+    /**
+     * @return exact bounds from the chunk summaries, without loading any values.
+     */
+    @NonNull
+    @Override
+    public RectF getDataBounds() {
+        if (minValues == null || maxValues == null || chunkCount == 0) {
+            return super.getDataBounds();
+        }
+
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            minY = Math.min(minY, minValues[chunk]);
+            maxY = Math.max(maxY, maxValues[chunk]);
+        }
+        if (hasBaseLine()) {
+            minY = Math.min(minY, getBaseLine());
+            maxY = Math.max(maxY, getBaseLine());
+        }
+
+        return new RectF(0, minY, totalCount - 1, maxY);
+    }
+
+    private static final class Chunk {
+        final long[] timestamps;
+        final float[] values;
+
+        Chunk(long[] timestamps, float[] values) {
+            this.timestamps = timestamps;
+            this.values = values;
+        }
+    }
+}
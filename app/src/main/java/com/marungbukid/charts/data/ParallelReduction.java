@@ -0,0 +1,229 @@
+package com.marungbukid.charts.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join bounds and min/max decimation over primitive value arrays.
+ * <p>
+ * Ranges are split recursively until they are below the sequential threshold, each chunk is
+ * reduced on its own and the partial results are merged on the way back. Decimation chunks are
+ * aligned to whole buckets and write straight into their own part of the output, so there is
+ * nothing to merge but the bucket order. Blocking calls belong on a background thread.
+ */
+public final class ParallelReduction {
+    /**
+     * Series shorter than this are reduced sequentially by default.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+    // smallest range a task splits further
+    private static final int MIN_CHUNK = 1 << 14;
+
+    private static volatile ForkJoinPool pool;
+
+    private ParallelReduction() {
+    }
+
+    /**
+     * @return the pool shared by all charts, sized to the number of cores.
+     */
+    @NonNull
+    public static ForkJoinPool getPool() {
+        ForkJoinPool result = pool;
+        if (result == null) {
+            synchronized (ParallelReduction.class) {
+                result = pool;
+                if (result == null) {
+                    result = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                    pool = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the min and max of {@code values[0, count)}, in parallel if {@code count} reaches
+     * {@code threshold}.
+     *
+     * @return {min, max}, or {MAX_VALUE, -MAX_VALUE} if count is 0.
+     */
+    @NonNull
+    @WorkerThread
+    public static float[] bounds(@NonNull float[] values, int count, int threshold) {
+        if (count < threshold) {
+            return sequentialBounds(values, count);
+        }
+        return getPool().invoke(new BoundsTask(values, 0, count, chunkSize(count)));
+    }
+
+    /**
+     * Computes the min and max of {@code values[0, count)} on the calling thread, without
+     * touching the pool.
+     *
+     * @return {min, max}, or {MAX_VALUE, -MAX_VALUE} if count is 0.
+     */
+    @NonNull
+    public static float[] sequentialBounds(@NonNull float[] values, int count) {
+        return BoundsTask.scan(values, 0, count);
+    }
+
+    /**
+     * Reduces {@code values[0, count)} to at most two points per bucket: the minimum and the
+     * maximum of the bucket, in the order they occur. Extremes are never lost, so the decimated
+     * line covers exactly the same vertical range as the original.
+     *
+     * @param outIndex receives the source index of each kept point, at least {@code 2 * buckets}
+     *                 long.
+     * @param outY receives the value of each kept point, at least {@code 2 * buckets} long.
+     * @return the number of points written.
+     */
+    @WorkerThread
+    public static int decimate(
+            @NonNull float[] values,
+            int count,
+            int buckets,
+            @NonNull int[] outIndex,
+            @NonNull float[] outY,
+            int threshold
+    ) {
+        if (count == 0 || buckets <= 0) return 0;
+
+        buckets = Math.min(buckets, count);
+        if (outIndex.length < 2 * buckets || outY.length < 2 * buckets) {
+            throw new IllegalArgumentException("output arrays must hold 2 * buckets points");
+        }
+
+        // one or two points per bucket, -1 marks an unused second slot
+        final DecimateTask task = new DecimateTask(values, count, buckets, 0, buckets, outIndex, outY,
+                Math.max(1, (int) ((long) chunkSize(count) * buckets / count)));
+        if (count < threshold) {
+            task.compute();
+        } else {
+            getPool().invoke(task);
+        }
+
+        // compact the unused second slots away
+        int written = 0;
+        for (int i = 0; i < 2 * buckets; i++) {
+            if (outIndex[i] >= 0) {
+                outIndex[written] = outIndex[i];
+                outY[written] = outY[i];
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static int chunkSize(int count) {
+        final int parallelism = getPool().getParallelism();
+        // a few chunks per worker keeps everyone busy when chunks finish unevenly
+        return Math.max(MIN_CHUNK, count / (parallelism * 4));
+    }
+
+    private static final class BoundsTask extends RecursiveTask<float[]> {
+        private final float[] values;
+        private final int from, to, chunk;
+
+        BoundsTask(float[] values, int from, int to, int chunk) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected float[] compute() {
+            if (to - from <= chunk) {
+                return scan(values, from, to);
+            }
+
+            final int mid = (from + to) >>> 1;
+            final BoundsTask left = new BoundsTask(values, from, mid, chunk);
+            left.fork();
+            final float[] right = new BoundsTask(values, mid, to, chunk).compute();
+            final float[] result = left.join();
+
+            result[0] = Math.min(result[0], right[0]);
+            result[1] = Math.max(result[1], right[1]);
+            return result;
+        }
+
+        static float[] scan(float[] values, int from, int to) {
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                final float value = values[i];
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+            return new float[]{min, max};
+        }
+    }
+
+    private static final class DecimateTask extends RecursiveAction {
+        private final float[] values;
+        private final int count, buckets;
+        private final int fromBucket, toBucket, bucketChunk;
+        private final int[] outIndex;
+        private final float[] outY;
+
+        DecimateTask(float[] values, int count, int buckets, int fromBucket, int toBucket,
+                     int[] outIndex, float[] outY, int bucketChunk) {
+            this.values = values;
+            this.count = count;
+            this.buckets = buckets;
+            this.fromBucket = fromBucket;
+            this.toBucket = toBucket;
+            this.outIndex = outIndex;
+            this.outY = outY;
+            this.bucketChunk = bucketChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBucket - fromBucket <= bucketChunk) {
+                for (int bucket = fromBucket; bucket < toBucket; bucket++) {
+                    reduceBucket(bucket);
+                }
+                return;
+            }
+
+            final int mid = (fromBucket + toBucket) >>> 1;
+            invokeAll(
+                    new DecimateTask(values, count, buckets, fromBucket, mid, outIndex, outY, bucketChunk),
+                    new DecimateTask(values, count, buckets, mid, toBucket, outIndex, outY, bucketChunk)
+            );
+        }
+
+        private void reduceBucket(int bucket) {
+            final int from = (int) ((long) bucket * count / buckets);
+            final int to = (int) ((long) (bucket + 1) * count / buckets);
+
+            int minIndex = from;
+            int maxIndex = from;
+            for (int i = from + 1; i < to; i++) {
+                if (values[i] < values[minIndex]) minIndex = i;
+                if (values[i] > values[maxIndex]) maxIndex = i;
+            }
+
+            final int first = Math.min(minIndex, maxIndex);
+            final int second = Math.max(minIndex, maxIndex);
+            final int out = 2 * bucket;
+
+            outIndex[out] = first;
+            outY[out] = values[first];
+            if (second != first) {
+                outIndex[out + 1] = second;
+                outY[out + 1] = values[second];
+            } else {
+                outIndex[out + 1] = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.marungbukid.charts.data;
+
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChartAdapter;
+import com.marungbukid.charts.BaseChartEntry;
+
+/**
+ * Adapter drawing a {@link QuantizedSeries}, for histories too long to keep as floats or entries.
+ * <p>
+ * Drawing only needs the quantized values. Exact values are looked up in an optional
+ * {@link ItemSource}, typically the original file or database, when a scrub listener asks for
+ * {@link #getItem(int)}.
+ */
+public class QuantizedChartAdapter<T extends BaseChartEntry> extends BaseChartAdapter<T> {
+
+    /**
+     * Resolves the exact entry at an index, e.g. from the store the series was quantized from.
+     */
+    public interface ItemSource<T> {
+        @Nullable
+        T getItem(int index);
+    }
+
+    @Nullable
+    private QuantizedSeries series;
+    @Nullable
+    private ItemSource<T> itemSource;
+
+    public QuantizedChartAdapter() {
+    }
+
+    public QuantizedChartAdapter(@NonNull QuantizedSeries series, @Nullable ItemSource<T> itemSource) {
+        this.series = series;
+        this.itemSource = itemSource;
+    }
+
+    public void setData(@Nullable QuantizedSeries series, @Nullable ItemSource<T> itemSource) {
+        this.series = series;
+        this.itemSource = itemSource;
+        notifyDataSetChanged();
+    }
+
+    @Nullable
+    public QuantizedSeries getSeries() {
+        return series;
+    }
+
+    @Override
+    public int getCount() {
+        return series == null ? 0 : series.size();
+    }
+
+    /**
+     * @return the exact entry from the item source, or null if there is none.
+     */
+    @Override
+    @Nullable
+    public T getItem(int index) {
+        return itemSource == null ? null : itemSource.getItem(index);
+    }
+
+    @Override
+    public float getY(int index) {
+        return series.get(index);
+    }
+
+    /**
+     * Reads the Y bounds from the block headers instead of scanning every value. X values are
+     * expected to be ascending, as they are for scrubbing.
+     */
+    @NonNull
+    @Override
+    public RectF getDataBounds() {
+        final int count = getCount();
+        if (count == 0) return super.getDataBounds();
+
+        float minY = series.getMin();
+        float maxY = series.getMax();
+        if (hasBaseLine()) {
+            minY = Math.min(minY, getBaseLine());
+            maxY = Math.max(maxY, getBaseLine());
+        }
+
+        return new RectF(getX(0), minY, getX(count - 1), maxY);
+    }
+}
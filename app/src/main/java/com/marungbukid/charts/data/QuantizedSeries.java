@@ -0,0 +1,120 @@
+package com.marungbukid.charts.data;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An immutable series of values stored as unsigned 16-bit offsets.
+ * <p>
+ * Values are split in blocks of {@link #BLOCK_SIZE}. Each block keeps its own minimum and step,
+ * so the error of a dequantized value is at most half a step, (block max - block min) / 131070.
+ * That is far below a pixel on any screen, at half the memory of a {@code float[]}.
+ */
+public final class QuantizedSeries {
+    public static final int BLOCK_SIZE = 1024;
+    private static final int BLOCK_SHIFT = 10;
+    private static final int LEVELS = 0xFFFF;
+
+    private final char[] offsets;
+    private final float[] blockMin;
+    private final float[] blockMax;
+    private final float[] blockStep;
+    private final int size;
+
+    private QuantizedSeries(char[] offsets, float[] blockMin, float[] blockMax, float[] blockStep, int size) {
+        this.offsets = offsets;
+        this.blockMin = blockMin;
+        this.blockMax = blockMax;
+        this.blockStep = blockStep;
+        this.size = size;
+    }
+
+    /**
+     * Quantizes {@code count} values of {@code values} starting at {@code offset}.
+     */
+    @NonNull
+    public static QuantizedSeries quantize(@NonNull float[] values, int offset, int count) {
+        if (offset < 0 || count < 0 || offset + count > values.length) {
+            throw new IndexOutOfBoundsException(
+                    "offset=" + offset + ", count=" + count + ", length=" + values.length
+            );
+        }
+
+        final int blocks = (count + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        final char[] offsets = new char[count];
+        final float[] blockMin = new float[blocks];
+        final float[] blockMax = new float[blocks];
+        final float[] blockStep = new float[blocks];
+
+        for (int block = 0; block < blocks; block++) {
+            final int start = block << BLOCK_SHIFT;
+            final int end = Math.min(start + BLOCK_SIZE, count);
+
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int i = start; i < end; i++) {
+                final float value = values[offset + i];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+
+            final float step = (max - min) / LEVELS;
+            blockMin[block] = min;
+            blockMax[block] = max;
+            blockStep[block] = step;
+
+            for (int i = start; i < end; i++) {
+                offsets[i] = step == 0
+                        ? 0
+                        : (char) Math.round((values[offset + i] - min) / step);
+            }
+        }
+
+        return new QuantizedSeries(offsets, blockMin, blockMax, blockStep, count);
+    }
+
+    @NonNull
+    public static QuantizedSeries quantize(@NonNull float[] values) {
+        return quantize(values, 0, values.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the dequantized value at the given index.
+     */
+    public float get(int index) {
+        final int block = index >>> BLOCK_SHIFT;
+        return blockMin[block] + offsets[index] * blockStep[block];
+    }
+
+    /**
+     * @return the exact minimum of all values, read from the block headers.
+     */
+    public float getMin() {
+        float min = Float.MAX_VALUE;
+        for (float value : blockMin) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    /**
+     * @return the exact maximum of all values, read from the block headers.
+     */
+    public float getMax() {
+        float max = -Float.MAX_VALUE;
+        for (float value : blockMax) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * @return the approximate heap footprint of this series in bytes.
+     */
+    public long getSizeInBytes() {
+        return 2L * offsets.length + 12L * blockMin.length;
+    }
+}
@@ -0,0 +1,266 @@
+package com.marungbukid.charts.data;
+
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, versioned series of points, as published by {@link SnapshotChartAdapter}.
+ * <p>
+ * Points are stored in fixed-size primitive chunks. A snapshot with appended points shares every
+ * chunk with the one it came from: new points go into slots past the end of the older snapshot,
+ * which it never reads. Only in-place updates copy the chunk they touch. Reads take no locks, so
+ * a reader holding a snapshot sees the same points however the series changes meanwhile.
+ */
+public final class SeriesSnapshot extends BaseChartAdapter<ChartPoint> {
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    // versions back that getUnchangedCount can answer for
+    private static final int CHANGE_HISTORY = 16;
+
+    static final SeriesSnapshot EMPTY =
+            new SeriesSnapshot(new float[0][], new float[0][], 0, 0, 0, unknownHistory(), null);
+
+    // chunk tables, possibly longer than used and shared with newer snapshots, which only
+    // write past this snapshot's last point
+    private final float[][] xChunks;
+    private final float[][] yChunks;
+    // position of the first point within the first chunk
+    private final int offset;
+    private final int count;
+    private final int version;
+    // leading points unchanged since each of the previous versions, newest first, -1 where unknown
+    private final int[] unchangedSince;
+    // {minX, minY, maxX, maxY}, computed on first use. A race computes the same values twice.
+    @Nullable
+    private volatile float[] bounds;
+
+    private SeriesSnapshot(
+            @NonNull float[][] xChunks,
+            @NonNull float[][] yChunks,
+            int offset,
+            int count,
+            int version,
+            @NonNull int[] unchangedSince,
+            @Nullable float[] bounds
+    ) {
+        this.xChunks = xChunks;
+        this.yChunks = yChunks;
+        this.offset = offset;
+        this.count = count;
+        this.version = version;
+        this.unchangedSince = unchangedSince;
+        this.bounds = bounds;
+    }
+
+    /**
+     * A snapshot is already immutable, it is its own pinned data.
+     */
+    @NonNull
+    @Override
+    public SeriesSnapshot pin() {
+        return this;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public ChartPoint getItem(int index) {
+        return new ChartPoint(index, Long.MIN_VALUE, getY(index));
+    }
+
+    @Override
+    public float getX(int index) {
+        final int position = offset + index;
+        return xChunks[position >> CHUNK_SHIFT][position & CHUNK_MASK];
+    }
+
+    @Override
+    public float getY(int index) {
+        final int position = offset + index;
+        return yChunks[position >> CHUNK_SHIFT][position & CHUNK_MASK];
+    }
+
+    /**
+     * @return the version this snapshot was published with, increasing with every change.
+     */
+    @Override
+    public int getDataVersion() {
+        return version;
+    }
+
+    /**
+     * Answered for the previous snapshots of the same adapter, whose versions count up by one.
+     */
+    @Override
+    public int getUnchangedCount(int version) {
+        if (version == this.version) return count;
+
+        final int distance = this.version - version;
+        if (distance < 1 || distance > unchangedSince.length) return -1;
+        return unchangedSince[distance - 1];
+    }
+
+    @NonNull
+    @Override
+    public RectF getDataBounds() {
+        if (count == 0) return super.getDataBounds();
+
+        float[] result = bounds;
+        if (result == null) {
+            result = scanBounds(0, count, null);
+            bounds = result;
+        }
+        return new RectF(result[0], result[1], result[2], result[3]);
+    }
+
+    /**
+     * @return the bounds of points {@code [from, to)} merged into {@code base}, in a new array.
+     */
+    @NonNull
+    private float[] scanBounds(int from, int to, @Nullable float[] base) {
+        final float[] result = base != null
+                ? base.clone()
+                : new float[]{Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int i = from; i < to; i++) {
+            final float x = getX(i);
+            final float y = getY(i);
+            if (x < result[0]) result[0] = x;
+            if (y < result[1]) result[1] = y;
+            if (x > result[2]) result[2] = x;
+            if (y > result[3]) result[3] = y;
+        }
+        return result;
+    }
+
+    /**
+     * @return a snapshot of the first {@code count} points, copied.
+     */
+    @NonNull
+    static SeriesSnapshot of(@NonNull float[] x, @NonNull float[] y, int count, int version) {
+        return EMPTY.appended(x, y, 0, count, version);
+    }
+
+    /**
+     * @return this snapshot with {@code n} points of the arrays appended, sharing all chunks.
+     * Only the writer of the newest snapshot may call this.
+     */
+    @NonNull
+    SeriesSnapshot appended(@NonNull float[] x, @NonNull float[] y, int from, int n, int version) {
+        final int end = offset + count;
+        final int chunks = (end + n + CHUNK_MASK) >> CHUNK_SHIFT;
+
+        float[][] newX = xChunks;
+        float[][] newY = yChunks;
+        if (chunks > xChunks.length) {
+            // a longer table, older snapshots keep the old one
+            final int length = Math.max(chunks, 2 * xChunks.length);
+            newX = Arrays.copyOf(xChunks, length);
+            newY = Arrays.copyOf(yChunks, length);
+        }
+
+        // past this snapshot's end, no published snapshot reads these slots
+        for (int i = 0; i < n; i++) {
+            final int position = end + i;
+            final int chunk = position >> CHUNK_SHIFT;
+            if (newX[chunk] == null) {
+                newX[chunk] = new float[CHUNK_SIZE];
+                newY[chunk] = new float[CHUNK_SIZE];
+            }
+            newX[chunk][position & CHUNK_MASK] = x[from + i];
+            newY[chunk][position & CHUNK_MASK] = y[from + i];
+        }
+
+        final SeriesSnapshot result = new SeriesSnapshot(
+                newX, newY, offset, count + n, version, history(count), null);
+        final float[] known = bounds;
+        if (known != null || count == 0) {
+            result.bounds = result.scanBounds(count, count + n, known);
+        }
+        return result;
+    }
+
+    /**
+     * @return this snapshot with the y of the last point replaced. Copies the last chunk and the
+     * chunk tables, everything else is shared.
+     */
+    @NonNull
+    SeriesSnapshot withLastY(float y, int version) {
+        if (count == 0) throw new IllegalStateException("no last point to update");
+
+        final int position = offset + count - 1;
+        final int chunk = position >> CHUNK_SHIFT;
+        final float[][] newY = yChunks.clone();
+        newY[chunk] = yChunks[chunk].clone();
+        newY[chunk][position & CHUNK_MASK] = y;
+
+        final SeriesSnapshot result = new SeriesSnapshot(
+                xChunks, newY, offset, count, version, history(count - 1), null);
+        final float[] known = bounds;
+        final float oldY = getY(count - 1);
+        if (known != null && oldY > known[1] && oldY < known[3]) {
+            // the old value was not an extreme, so the rest of the series keeps its bounds
+            result.bounds = result.scanBounds(count - 1, count, known);
+        }
+        return result;
+    }
+
+    /**
+     * @return this snapshot without its first {@code n} points. Chunks left empty are dropped
+     * from the new tables, the others are shared.
+     */
+    @NonNull
+    SeriesSnapshot withoutFirst(int n, int version) {
+        n = Math.min(n, count);
+        // every index shifts, no point stays where it was
+        final int[] history = history(0);
+        if (n == count) {
+            return new SeriesSnapshot(new float[0][], new float[0][], 0, 0, version, history, null);
+        }
+
+        final int start = offset + n;
+        final int dropped = start >> CHUNK_SHIFT;
+        if (dropped == 0) {
+            return new SeriesSnapshot(xChunks, yChunks, start, count - n, version, history, null);
+        }
+        return new SeriesSnapshot(
+                Arrays.copyOfRange(xChunks, dropped, xChunks.length),
+                Arrays.copyOfRange(yChunks, dropped, yChunks.length),
+                start & CHUNK_MASK,
+                count - n,
+                version,
+                history,
+                null
+        );
+    }
+
+    /**
+     * @return the change history of the next snapshot, which keeps {@code unchangedCount}
+     * leading points of this one.
+     */
+    @NonNull
+    private int[] history(int unchangedCount) {
+        final int[] result = new int[CHANGE_HISTORY];
+        result[0] = unchangedCount;
+        for (int i = 1; i < result.length; i++) {
+            result[i] = Math.min(unchangedCount, unchangedSince[i - 1]);
+        }
+        return result;
+    }
+
+    @NonNull
+    private static int[] unknownHistory() {
+        final int[] result = new int[CHANGE_HISTORY];
+        Arrays.fill(result, -1);
+        return result;
+    }
+}
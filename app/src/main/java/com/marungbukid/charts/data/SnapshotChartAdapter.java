@@ -0,0 +1,158 @@
+package com.marungbukid.charts.data;
+
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adapter that may be written from any thread while charts read it.
+ * <p>
+ * Every change publishes a new immutable {@link SeriesSnapshot} with a higher version. Appends
+ * share all existing points with the previous snapshot, so a tick costs one small object rather
+ * than a copy of the series. Charts {@link #pin()} the current snapshot once per pass, such as a
+ * projection, a bounds scan or a scrub, and read it without locks; a write in the middle of the
+ * pass shows up in the next one. Writes are serialised on the adapter, and observers are
+ * notified on the UI thread, once for any number of writes in between.
+ * <p>
+ * The unpinned getters read whatever snapshot is current at the time of each call, so code
+ * reading more than one point should pin first.
+ */
+public class SnapshotChartAdapter extends BaseChartAdapter<ChartPoint> {
+    private volatile SeriesSnapshot snapshot = SeriesSnapshot.EMPTY;
+    // guarded by this
+    private int version;
+    private final float[] pointX = new float[1];
+    private final float[] pointY = new float[1];
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean notifyScheduled = new AtomicBoolean();
+
+    public SnapshotChartAdapter() {
+    }
+
+    /**
+     * Replaces the series with a copy of the first {@code count} points. Any thread.
+     */
+    public synchronized void setValues(@NonNull float[] x, @NonNull float[] y, int count) {
+        checkLength(x, y, 0, count);
+        publish(SeriesSnapshot.of(x, y, count, ++version));
+    }
+
+    /**
+     * Appends a point. Any thread.
+     */
+    public synchronized void append(float x, float y) {
+        pointX[0] = x;
+        pointY[0] = y;
+        publish(snapshot.appended(pointX, pointY, 0, 1, ++version));
+    }
+
+    /**
+     * Appends points {@code [from, from + count)} of the arrays in one change. Any thread.
+     */
+    public synchronized void append(@NonNull float[] x, @NonNull float[] y, int from, int count) {
+        checkLength(x, y, from, count);
+        publish(snapshot.appended(x, y, from, count, ++version));
+    }
+
+    /**
+     * Updates the y of the last point, such as the close of a bar still being traded. Any thread.
+     */
+    public synchronized void setLastY(float y) {
+        publish(snapshot.withLastY(y, ++version));
+    }
+
+    /**
+     * Drops the {@code count} oldest points, for a series that keeps a moving window. Any thread.
+     */
+    public synchronized void removeFirst(int count) {
+        if (count <= 0) return;
+        publish(snapshot.withoutFirst(count, ++version));
+    }
+
+    public synchronized void clear() {
+        publish(snapshot.withoutFirst(snapshot.getCount(), ++version));
+    }
+
+    /**
+     * @return the current snapshot, which never changes.
+     */
+    @NonNull
+    public SeriesSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @NonNull
+    @Override
+    public SeriesSnapshot pin() {
+        return snapshot;
+    }
+
+    @Override
+    public int getCount() {
+        return snapshot.getCount();
+    }
+
+    @Override
+    public ChartPoint getItem(int index) {
+        return snapshot.getItem(index);
+    }
+
+    @Override
+    public float getX(int index) {
+        return snapshot.getX(index);
+    }
+
+    @Override
+    public float getY(int index) {
+        return snapshot.getY(index);
+    }
+
+    @NonNull
+    @Override
+    public RectF getDataBounds() {
+        return snapshot.getDataBounds();
+    }
+
+    /**
+     * @return the version of the current snapshot, so geometry built from a pinned snapshot
+     * matches the adapter for as long as nothing was written.
+     */
+    @Override
+    public int getDataVersion() {
+        return snapshot.getDataVersion();
+    }
+
+    @Override
+    public int getUnchangedCount(int version) {
+        return snapshot.getUnchangedCount(version);
+    }
+
+    private void publish(@NonNull SeriesSnapshot newSnapshot) {
+        snapshot = newSnapshot;
+        if (notifyScheduled.compareAndSet(false, true)) {
+            mainHandler.post(notifyChanged);
+        }
+    }
+
+    private static void checkLength(@NonNull float[] x, @NonNull float[] y, int from, int count) {
+        if (from < 0 || count < 0 || from + count > x.length || from + count > y.length) {
+            throw new IllegalArgumentException("arrays hold fewer than from + count points");
+        }
+    }
+
+    private final Runnable notifyChanged = new Runnable() {
+        @Override
+        public void run() {
+            // writes from here on schedule another notification
+            notifyScheduled.set(false);
+            notifyDataSetChanged();
+        }
+    };
+}
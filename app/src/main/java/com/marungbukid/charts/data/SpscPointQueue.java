@@ -0,0 +1,168 @@
+package com.marungbukid.charts.data;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free queue of (timestamp, value) pairs for exactly one producer thread and
+ * one consumer thread. Nothing is allocated per point.
+ * <p>
+ * When the consumer falls behind and the ring is full, the {@link OverflowPolicy} decides what
+ * happens to new points.
+ */
+public final class SpscPointQueue {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({
+            OverflowPolicy.REJECT,
+            OverflowPolicy.CONFLATE
+    })
+    public @interface OverflowPolicy {
+        /**
+         * {@link #offer} returns false and the point is dropped, leaving backpressure to the caller.
+         */
+        int REJECT = 0;
+
+        /**
+         * Points arriving while the ring is full replace each other in a single overflow slot, so
+         * the consumer always receives the latest point once it catches up.
+         */
+        int CONFLATE = 1;
+    }
+
+    /**
+     * Receives drained points on the consumer thread.
+     */
+    public interface Consumer {
+        void accept(long timestamp, float value);
+    }
+
+    private final long[] timestamps;
+    private final float[] values;
+    private final int mask;
+    @OverflowPolicy
+    private final int overflowPolicy;
+
+    // next slot to read, written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // next slot to write, written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+    // producer's cached copy of head, refreshed only when the ring looks full
+    private long cachedHead;
+
+    // conflation slot, guarded by a sequence number that is odd while being written. The slot
+    // fields are volatile so a reader re-checking the sequence cannot miss a concurrent rewrite.
+    private final AtomicLong overflowSeq = new AtomicLong();
+    // last overflow sequence taken by the consumer
+    private final AtomicLong overflowAck = new AtomicLong();
+    private volatile long overflowTimestamp;
+    private volatile float overflowValue;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity number of points the ring holds, rounded up to a power of two.
+     */
+    public SpscPointQueue(int capacity, @OverflowPolicy int overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.timestamps = new long[Math.max(size, 1)];
+        this.values = new float[Math.max(size, 1)];
+        this.mask = timestamps.length - 1;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Enqueues a point. Producer thread only.
+     *
+     * @return false if the point was rejected because the ring is full.
+     */
+    public boolean offer(long timestamp, float value) {
+        // while a conflated point is pending, newer points must not overtake it through the ring
+        final boolean overflowPending = overflowSeq.get() != overflowAck.get();
+
+        final long t = tail.get();
+        if (!overflowPending && (t - cachedHead <= mask || t - (cachedHead = head.get()) <= mask)) {
+            timestamps[(int) t & mask] = timestamp;
+            values[(int) t & mask] = value;
+            tail.lazySet(t + 1);
+            return true;
+        }
+
+        if (overflowPolicy == OverflowPolicy.CONFLATE) {
+            final long seq = overflowSeq.get();
+            if (overflowPending) dropped.incrementAndGet();
+            overflowSeq.set(seq + 1);
+            overflowTimestamp = timestamp;
+            overflowValue = value;
+            overflowSeq.set(seq + 2);
+            return true;
+        }
+
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Hands every pending point to the consumer, oldest first. Consumer thread only.
+     *
+     * @return the number of points drained.
+     */
+    public int drain(@NonNull Consumer consumer) {
+        int drained = 0;
+        long h = head.get();
+        while (true) {
+            final long t = tail.get();
+            for (long i = h; i < t; i++) {
+                consumer.accept(timestamps[(int) i & mask], values[(int) i & mask]);
+            }
+            head.lazySet(t);
+            drained += (int) (t - h);
+            h = t;
+
+            final long seq = overflowSeq.get();
+            // nothing conflated, or the producer is writing the slot right now
+            if (seq == overflowAck.get() || (seq & 1) != 0) break;
+
+            // points that reached the ring before the overflow are older, deliver them first
+            if (tail.get() != t) continue;
+
+            final long timestamp = overflowTimestamp;
+            final float value = overflowValue;
+            // only use the slot if the producer did not rewrite it while we were reading
+            if (overflowSeq.get() == seq) {
+                consumer.accept(timestamp, value);
+                overflowAck.set(seq);
+                drained++;
+            }
+            break;
+        }
+
+        return drained;
+    }
+
+    /**
+     * @return true if there may be points waiting to be drained.
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get() && overflowSeq.get() == overflowAck.get();
+    }
+
+    /**
+     * @return the number of points lost to the overflow policy so far.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+}
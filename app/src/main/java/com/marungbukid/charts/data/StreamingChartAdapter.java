@@ -0,0 +1,170 @@
+package com.marungbukid.charts.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adapter fed from a background thread through a {@link SpscPointQueue}.
+ * <p>
+ * A single feed thread calls {@link #offer(long, float)} without blocking. Pending points are
+ * drained on the UI thread once per frame, followed by a single notification that tells readers
+ * which points were appended, so the chart rebuilds at most once per frame however fast ticks arrive. The adapter keeps the
+ * latest {@code maxPoints} points and drops older ones. Use {@link #getTimestamp(int)} and
+ * {@link #getY(int)} to read points without creating entries.
+ */
+public class StreamingChartAdapter extends BaseChartAdapter<ChartPoint> {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final SpscPointQueue queue;
+    private final int maxPoints;
+
+    // points in a ring once maxPoints is reached, oldest at start
+    private long[] timestamps = new long[0];
+    private float[] values = new float[0];
+    private int start;
+    private int count;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    /**
+     * @param queueCapacity  points that may be pending between two frames.
+     * @param maxPoints      points kept for drawing, older ones are dropped.
+     * @param overflowPolicy what to do with new points while the queue is full.
+     */
+    public StreamingChartAdapter(
+            int queueCapacity,
+            int maxPoints,
+            @SpscPointQueue.OverflowPolicy int overflowPolicy
+    ) {
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints must be positive: " + maxPoints);
+        }
+
+        this.queue = new SpscPointQueue(queueCapacity, overflowPolicy);
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * Queues a point for the next frame. Must always be called from the same feed thread.
+     *
+     * @return false if the point was rejected because the queue is full.
+     */
+    public boolean offer(long timestamp, float value) {
+        final boolean accepted = queue.offer(timestamp, value);
+        if (accepted && drainScheduled.compareAndSet(false, true)) {
+            mainHandler.post(scheduleDrain);
+        }
+        return accepted;
+    }
+
+    @NonNull
+    public SpscPointQueue getQueue() {
+        return queue;
+    }
+
+    /**
+     * Drains pending points right away instead of waiting for the next frame. UI thread only.
+     */
+    public void drainNow() {
+        final int before = count;
+        final int drained = queue.drain(appender);
+        if (drained == 0) return;
+
+        if (before + drained <= maxPoints) {
+            notifyDataSetChangedFrom(before);
+        } else {
+            // older points were dropped and every index moved
+            notifyDataSetChanged();
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public ChartPoint getItem(int index) {
+        return new ChartPoint(index, getTimestamp(index), getY(index));
+    }
+
+    @Override
+    public float getY(int index) {
+        return values[slot(index)];
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[slot(index)];
+    }
+
+    private int slot(int index) {
+        final int slot = start + index;
+        return slot < values.length ? slot : slot - values.length;
+    }
+
+    private void append(long timestamp, float value) {
+        if (count == values.length && values.length < maxPoints) {
+            grow();
+        }
+
+        if (count < values.length) {
+            final int slot = slot(count);
+            timestamps[slot] = timestamp;
+            values[slot] = value;
+            count++;
+        } else {
+            // full, overwrite the oldest point
+            timestamps[start] = timestamp;
+            values[start] = value;
+            start = start + 1 == values.length ? 0 : start + 1;
+        }
+    }
+
+    private void grow() {
+        final int capacity = (int) Math.min(maxPoints, Math.max(INITIAL_CAPACITY, 2L * values.length));
+        final long[] newTimestamps = new long[capacity];
+        final float[] newValues = new float[capacity];
+
+        // unroll the ring while copying so the oldest point lands at 0
+        for (int i = 0; i < count; i++) {
+            final int slot = slot(i);
+            newTimestamps[i] = timestamps[slot];
+            newValues[i] = values[slot];
+        }
+
+        timestamps = newTimestamps;
+        values = newValues;
+        start = 0;
+    }
+
+    private final SpscPointQueue.Consumer appender = new SpscPointQueue.Consumer() {
+        @Override
+        public void accept(long timestamp, float value) {
+            append(timestamp, value);
+        }
+    };
+
+    private final Choreographer.FrameCallback drainCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // points offered from here on schedule the next frame
+            drainScheduled.set(false);
+            drainNow();
+        }
+    };
+
+    private final Runnable scheduleDrain = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(drainCallback);
+        }
+    };
+}
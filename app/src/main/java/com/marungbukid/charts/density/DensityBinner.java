@@ -0,0 +1,160 @@
+package com.marungbukid.charts.density;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.marungbukid.charts.BaseChart;
+import com.marungbukid.charts.BaseChartAdapter;
+import com.marungbukid.charts.data.ParallelReduction;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counts adapter points per grid cell and colour-maps the counts.
+ * <p>
+ * The points are split into one contiguous chunk per grid, each counted into its own grid on
+ * {@link ParallelReduction#getPool()} without any sharing, then the grids are summed into the
+ * first one. Colour mapping is a single pass over the cells, so its cost depends on the view
+ * area only.
+ */
+final class DensityBinner {
+    // levels of the colour ramp
+    static final int PALETTE_SIZE = 256;
+
+    private DensityBinner() {
+    }
+
+    /**
+     * Counts the points of {@code adapter} into {@code grids[0]}, using the other grids as
+     * scratch space for parallel chunks.
+     *
+     * @return the highest count of a cell.
+     */
+    @WorkerThread
+    static int bin(
+            @NonNull BaseChartAdapter adapter,
+            @NonNull BaseChart.ScaleHelper scaleHelper,
+            float left,
+            float top,
+            float cellSize,
+            int columns,
+            int rows,
+            @NonNull int[][] grids,
+            int parallelThreshold
+    ) {
+        final int count = adapter.getCount();
+        final int cells = columns * rows;
+        final int chunks = count < parallelThreshold ? 1 : grids.length;
+
+        final BinTask[] tasks = new BinTask[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            tasks[chunk] = new BinTask(adapter, scaleHelper, left, top, cellSize, columns, rows,
+                    grids[chunk], (int) ((long) chunk * count / chunks),
+                    (int) ((long) (chunk + 1) * count / chunks));
+        }
+
+        if (chunks == 1) {
+            tasks[0].compute();
+        } else {
+            ParallelReduction.getPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+
+        // sum the chunks into the first grid
+        final int[] result = grids[0];
+        int max = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int sum = result[cell];
+            for (int chunk = 1; chunk < chunks; chunk++) {
+                sum += grids[chunk][cell];
+            }
+            result[cell] = sum;
+            if (sum > max) max = sum;
+        }
+        return max;
+    }
+
+    /**
+     * Maps every count of {@code grid} to a palette colour, on a log scale so single prints stay
+     * visible next to dense clusters. Empty cells are transparent.
+     */
+    @WorkerThread
+    static void colorize(@NonNull int[] grid, int cells, int maxCount, @NonNull int[] palette,
+                         @NonNull int[] pixels) {
+        final double scale = maxCount > 0 ? (PALETTE_SIZE - 1) / Math.log1p(maxCount) : 0;
+        for (int cell = 0; cell < cells; cell++) {
+            final int count = grid[cell];
+            pixels[cell] = count == 0 ? 0 : palette[(int) (Math.log1p(count) * scale)];
+        }
+    }
+
+    /**
+     * @return a ramp of {@link #PALETTE_SIZE} colours from {@code low} to {@code high},
+     * interpolating every channel including alpha.
+     */
+    @NonNull
+    static int[] createPalette(int low, int high) {
+        final int[] palette = new int[PALETTE_SIZE];
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            final float fraction = i / (float) (PALETTE_SIZE - 1);
+            palette[i] = channel(low, high, 24, fraction)
+                    | channel(low, high, 16, fraction)
+                    | channel(low, high, 8, fraction)
+                    | channel(low, high, 0, fraction);
+        }
+        return palette;
+    }
+
+    private static int channel(int low, int high, int shift, float fraction) {
+        final int from = (low >>> shift) & 0xff;
+        final int to = (high >>> shift) & 0xff;
+        return Math.round(from + (to - from) * fraction) << shift;
+    }
+
+    private static int clamp(int value, int size) {
+        return value < 0 ? 0 : value >= size ? size - 1 : value;
+    }
+
+    private static final class BinTask extends RecursiveAction {
+        private final BaseChartAdapter adapter;
+        private final BaseChart.ScaleHelper scaleHelper;
+        private final float left, top, cellSize;
+        private final int columns, rows;
+        private final int[] grid;
+        private final int from, to;
+
+        BinTask(BaseChartAdapter adapter, BaseChart.ScaleHelper scaleHelper, float left, float top,
+                float cellSize, int columns, int rows, int[] grid, int from, int to) {
+            this.adapter = adapter;
+            this.scaleHelper = scaleHelper;
+            this.left = left;
+            this.top = top;
+            this.cellSize = cellSize;
+            this.columns = columns;
+            this.rows = rows;
+            this.grid = grid;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            final int cells = columns * rows;
+            for (int cell = 0; cell < cells; cell++) {
+                grid[cell] = 0;
+            }
+
+            for (int i = from; i < to; i++) {
+                final int column = (int) ((scaleHelper.getX(adapter.getX(i)) - left) / cellSize);
+                final int row = (int) ((scaleHelper.getY(adapter.getY(i)) - top) / cellSize);
+
+                // the scale spans the data bounds, only the far edges round out of the grid
+                grid[clamp(row, rows) * columns + clamp(column, columns)]++;
+            }
+        }
+    }
+}
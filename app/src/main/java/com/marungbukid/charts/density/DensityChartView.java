@@ -0,0 +1,342 @@
+package com.marungbukid.charts.density;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.database.DataSetObserver;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AttributeSet;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChart;
+import com.marungbukid.charts.BaseChartAdapter;
+import com.marungbukid.charts.ChartMetrics;
+import com.marungbukid.charts.R;
+import com.marungbukid.charts.data.ParallelReduction;
+import com.marungbukid.charts.render.PinnedPoints;
+
+/**
+ * Scatter chart for series too dense for individual markers, such as trade prints.
+ * <p>
+ * Points are counted per cell of a grid covering the content area, in parallel chunks on a
+ * background thread, and the counts are colour-mapped from the low to the high density colour
+ * into a bitmap. Drawing only blits that bitmap, so the cost of a frame depends on the view area
+ * and the cell size, not on the number of points. Adapters must not be modified while a grid is
+ * being built; any change notified through the adapter starts a new build.
+ * <p>
+ * Every build reads the points through {@link PinnedPoints}. A
+ * {@link com.marungbukid.charts.data.SnapshotChartAdapter} or
+ * {@link com.marungbukid.charts.data.ArrayChartAdapter} is read as it is, any other adapter is
+ * copied on the UI thread at the start of each build.
+ */
+public class DensityChartView extends BaseChart {
+    // chunks counted in parallel, each needs a grid of its own
+    private static final int MAX_CHUNKS = 4;
+
+    @ColorInt
+    private int lowColor;
+    @ColorInt
+    private int highColor;
+    private float cellSize;
+    private int[] palette;
+    private int parallelThreshold = ParallelReduction.DEFAULT_PARALLEL_THRESHOLD;
+
+    private final RectF contentRect = new RectF();
+    // where the shown bitmap is drawn, the content rect it was built for
+    private final RectF bitmapRect = new RectF();
+    private final Paint bitmapPaint = new Paint();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // the shown grid, and the one a build draws into
+    @Nullable
+    private Bitmap frontBitmap;
+    @Nullable
+    private Bitmap backBitmap;
+    @Nullable
+    private int[][] grids;
+    @Nullable
+    private int[] pixels;
+
+    // one build at a time, changes during a build start another one once it is done
+    private int generation;
+    private boolean building;
+    private boolean rebuildPending;
+    // points of the last build, repinned for the next one
+    @Nullable
+    private PinnedPoints buildPoints;
+
+    public DensityChartView(Context context) {
+        super(context);
+        init(context, null, R.attr.stockCharts_DensityChartViewStyle, R.style.stockCharts_Base_DensityChart);
+    }
+
+    public DensityChartView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs, R.attr.stockCharts_DensityChartViewStyle, R.style.stockCharts_Base_DensityChart);
+    }
+
+    public DensityChartView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context, attrs, defStyleAttr, R.style.stockCharts_Base_DensityChart);
+    }
+
+    public DensityChartView(Context context, @Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        init(context, attrs, defStyleAttr, defStyleRes);
+    }
+
+    private void init(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.DensityChartView,
+                defStyleAttr, defStyleRes);
+
+        lowColor = a.getColor(R.styleable.DensityChartView_charts_densityLowColor, 0);
+        highColor = a.getColor(R.styleable.DensityChartView_charts_densityHighColor, 0);
+        cellSize = Math.max(1f, a.getDimension(R.styleable.DensityChartView_charts_densityCellSize, 1f));
+
+        a.recycle();
+
+        palette = DensityBinner.createPalette(lowColor, highColor);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateContentRect();
+        populatePath();
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        updateContentRect();
+        populatePath();
+    }
+
+    @Override
+    protected void onContentPaddingChanged() {
+        updateContentRect();
+        populatePath();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (frontBitmap == null) populatePath();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        // drop any build in flight and the bitmaps, they are rebuilt on reattach
+        generation++;
+        rebuildPending = false;
+        frontBitmap = null;
+        backBitmap = null;
+        grids = null;
+        pixels = null;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final long drawStage = beginStage(ChartMetrics.Stage.DRAW);
+        super.onDraw(canvas);
+
+        if (frontBitmap != null) {
+            canvas.drawBitmap(frontBitmap, null, bitmapRect, bitmapPaint);
+        }
+        drawAnnotations(canvas);
+
+        endStage(ChartMetrics.Stage.DRAW, drawStage);
+        reportDrawn();
+    }
+
+    private void updateContentRect() {
+        contentRect.set(
+                getPaddingStart(),
+                getPaddingTop(),
+                getWidth() - getPaddingEnd(),
+                getHeight() - getPaddingBottom()
+        );
+    }
+
+    /**
+     * Starts building the grid for the current data and size. The old grid stays on screen until
+     * the new one is ready.
+     */
+    @Override
+    protected void populatePath() {
+        generation++;
+        if (adapter == null || adapter.getCount() == 0
+                || contentRect.width() <= 0 || contentRect.height() <= 0) {
+            clearData();
+            return;
+        }
+
+        if (building) {
+            rebuildPending = true;
+            return;
+        }
+
+        startBuild();
+    }
+
+    private void startBuild() {
+        // read on the pool, so from immutable pinned data or a copy of the points that a writer
+        // cannot tear, with every input captured now
+        // the previous build is done with its points, so a copy reuses their buffers
+        buildPoints = PinnedPoints.of(adapter, buildPoints);
+        final BaseChartAdapter buildAdapter = buildPoints;
+        final RectF buildRect = new RectF(contentRect);
+        final float buildCellSize = cellSize;
+        final int columns = Math.max(1, (int) Math.ceil(buildRect.width() / buildCellSize));
+        final int rows = Math.max(1, (int) Math.ceil(buildRect.height() / buildCellSize));
+        final int cells = columns * rows;
+        final int buildGeneration = generation;
+        final int threshold = parallelThreshold;
+        final int[] buildPalette = palette;
+
+        // buffers are only touched by one build at a time, so they are reused until the size changes
+        if (pixels == null || pixels.length != cells) {
+            final int chunks = Math.min(MAX_CHUNKS, ParallelReduction.getPool().getParallelism());
+            grids = new int[Math.max(1, chunks)][cells];
+            pixels = new int[cells];
+        }
+        if (backBitmap == null || backBitmap.getWidth() != columns || backBitmap.getHeight() != rows) {
+            backBitmap = Bitmap.createBitmap(columns, rows, Bitmap.Config.ARGB_8888);
+        }
+        final int[][] buildGrids = grids;
+        final int[] buildPixels = pixels;
+        final Bitmap buildBitmap = backBitmap;
+
+        building = true;
+        ParallelReduction.getPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                ScaleHelper scale = null;
+                boolean built = false;
+                try {
+                    scale = new ScaleHelper(buildAdapter, buildRect, 0, true);
+                    final int maxCount = DensityBinner.bin(buildAdapter, scale, buildRect.left,
+                            buildRect.top, buildCellSize, columns, rows, buildGrids, threshold);
+                    DensityBinner.colorize(buildGrids[0], cells, maxCount, buildPalette, buildPixels);
+                    buildBitmap.setPixels(buildPixels, 0, columns, 0, 0, columns, rows);
+                    built = true;
+                } finally {
+                    // a failed build must not leave the view waiting for it forever
+                    final ScaleHelper buildScale = built ? scale : null;
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            building = false;
+                            if (buildScale != null && buildGeneration == generation) {
+                                showBuild(buildBitmap, buildScale, buildRect, buildCellSize,
+                                        buildAdapter.getCount(), cells);
+                            }
+                            if (rebuildPending) {
+                                rebuildPending = false;
+                                populatePath();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void showBuild(Bitmap bitmap, ScaleHelper scale, RectF rect, float cellSize, int points,
+                           int cells) {
+        backBitmap = frontBitmap;
+        frontBitmap = bitmap;
+        scaleHelper = scale;
+        bitmapRect.set(rect.left, rect.top,
+                rect.left + bitmap.getWidth() * cellSize, rect.top + bitmap.getHeight() * cellSize);
+
+        reportPopulated(points, cells);
+        invalidate();
+    }
+
+    private void clearData() {
+        scaleHelper = null;
+        rebuildPending = false;
+        if (frontBitmap != null && !building) {
+            backBitmap = frontBitmap;
+        }
+        frontBitmap = null;
+        invalidate();
+    }
+
+    /**
+     * Sets the colours of the least and the most dense cells, both may be translucent.
+     */
+    public void setDensityColors(@ColorInt int lowColor, @ColorInt int highColor) {
+        this.lowColor = lowColor;
+        this.highColor = highColor;
+        palette = DensityBinner.createPalette(lowColor, highColor);
+        populatePath();
+    }
+
+    /**
+     * Sets the edge length of a grid cell in pixels, at least 1.
+     */
+    public void setCellSize(float cellSize) {
+        this.cellSize = Math.max(1f, cellSize);
+        populatePath();
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Sets the size from which points are counted in parallel chunks.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void setAdapter(@Nullable BaseChartAdapter adapter) {
+        if (this.adapter != null) {
+            this.adapter.unregisterDataSetObserver(dataSetObserver);
+        }
+        this.adapter = adapter;
+        if (this.adapter != null) {
+            this.adapter.registerDataSetObserver(dataSetObserver);
+        }
+        populatePath();
+    }
+
+    // individual points are not addressable in a density plot, only markers can be scrubbed
+
+    @Override
+    public void onScrubbed(float x, float y) {
+        dispatchAnnotationScrub(x);
+    }
+
+    @Override
+    public void onScrubEnded() {
+        dispatchAnnotationScrubEnded();
+    }
+
+    private final DataSetObserver dataSetObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            super.onChanged();
+            populatePath();
+        }
+
+        @Override
+        public void onInvalidated() {
+            super.onInvalidated();
+            generation++;
+            clearData();
+        }
+    };
+}
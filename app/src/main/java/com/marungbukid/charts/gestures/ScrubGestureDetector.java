@@ -1,40 +1,85 @@
 package com.marungbukid.charts.gestures;
 
 import android.os.Handler;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 
 import androidx.annotation.NonNull;
 
+/**
+ * Turns a long-press followed by moves into scrub callbacks.
+ * <p>
+ * Touch panels often sample faster than the display refreshes, so moves are not forwarded as they
+ * arrive. The latest position is kept and delivered at most once per {@link Choreographer} frame.
+ * Input is dispatched before frame callbacks, so a scrub still lands in the frame of its event.
+ * The long-press is a single delayed frame callback, a tap costs no frames.
+ */
 public class ScrubGestureDetector implements View.OnTouchListener {
 	static final long LONG_PRESS_TIMEOUT_MS = 250;
 
 	private final ScrubListener scrubListener;
-	private final Handler handler;
+	private final Choreographer choreographer;
 	private final float touchSlop;
 
 	private boolean enabled;
 	private float downX, downY;
+	private boolean scrubbing;
+	private boolean longPressScheduled;
+
+	// latest position not delivered to the listener yet
+	private boolean pendingScrub;
+	private float pendingX, pendingY;
+	private boolean frameScheduled;
 
 	public ScrubGestureDetector(
 		@NonNull ScrubListener scrubListener,
-		@NonNull Handler handler,
 		float touchSlop
 	) {
 		this.scrubListener = scrubListener;
-		this.handler = handler;
+		this.choreographer = Choreographer.getInstance();
 		this.touchSlop = touchSlop;
 	}
 
-	private final Runnable longPressRunnable = new Runnable() {
+	/**
+	 * @deprecated scrubs are paced by {@link Choreographer} now, the handler is not used.
+	 */
+	@Deprecated
+	public ScrubGestureDetector(
+		@NonNull ScrubListener scrubListener,
+		@NonNull Handler handler,
+		float touchSlop
+	) {
+		this(scrubListener, touchSlop);
+	}
+
+	private final Choreographer.FrameCallback longPressCallback = new Choreographer.FrameCallback() {
 		@Override
-		public void run() {
+		public void doFrame(long frameTimeNanos) {
+			longPressScheduled = false;
+			if (scrubbing) return;
+
+			// held still long enough, scrub at the down position in this frame
+			scrubbing = true;
 			scrubListener.onScrubbed(downX, downY);
 		}
 	};
 
+	private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			frameScheduled = false;
+
+			if (pendingScrub) {
+				pendingScrub = false;
+				scrubListener.onScrubbed(pendingX, pendingY);
+			}
+		}
+	};
+
 	public void setEnabled(boolean enabled) {
 		this.enabled = enabled;
+		if (!enabled) cancel();
 	}
 
 	@Override
@@ -50,8 +95,10 @@ public class ScrubGestureDetector implements View.OnTouchListener {
 				// store the time to compute whether future events are 'long presses'
 				downX = x;
 				downY = y;
+				cancel();
 
-				handler.postDelayed(longPressRunnable, LONG_PRESS_TIMEOUT_MS);
+				longPressScheduled = true;
+				choreographer.postFrameCallbackDelayed(longPressCallback, LONG_PRESS_TIMEOUT_MS);
 				return true;
 
 
@@ -61,16 +108,23 @@ public class ScrubGestureDetector implements View.OnTouchListener {
 
 				// if the user has intentionally long-pressed
 				if (timeDelta >= LONG_PRESS_TIMEOUT_MS) {
-					handler.removeCallbacks(longPressRunnable);
-					scrubListener.onScrubbed(x, y);
+					// the move may beat the long-press callback by a frame
+					cancelLongPress();
+					scrubbing = true;
+					queueScrub(x, y);
 				} else {
-					// if we moved before longpress, remove the callback if we exceeded the tap slop
-					float deltaX = x - downX;
-					float deltaY = y - downY;
-					if (deltaX >= touchSlop || deltaY >= touchSlop) {
-						handler.removeCallbacks(longPressRunnable);
+					// if we moved before longpress, stop waiting if any sample exceeded the tap
+					// slop, including the ones batched into this event
+					for (int i = 0; i < event.getHistorySize(); i++) {
+						if (exceedsSlop(event.getHistoricalX(i), event.getHistoricalY(i))) {
+							cancel();
+							return false;
+						}
+					}
+					if (exceedsSlop(x, y)) {
 						// We got a MOVE event that exceeded tap slop but before the long-press
 						// threshold, we don't care about this series of events anymore.
+						cancel();
 						return false;
 					}
 				}
@@ -80,7 +134,7 @@ public class ScrubGestureDetector implements View.OnTouchListener {
 
 			case MotionEvent.ACTION_UP:
 			case MotionEvent.ACTION_CANCEL:
-				handler.removeCallbacks(longPressRunnable);
+				cancel();
 				scrubListener.onScrubEnded();
 				return true;
 			default:
@@ -88,6 +142,43 @@ public class ScrubGestureDetector implements View.OnTouchListener {
 		}
 	}
 
+	private boolean exceedsSlop(float x, float y) {
+		float deltaX = x - downX;
+		float deltaY = y - downY;
+		return deltaX >= touchSlop || deltaY >= touchSlop;
+	}
+
+	private void queueScrub(float x, float y) {
+		pendingX = x;
+		pendingY = y;
+		pendingScrub = true;
+		scheduleFrame();
+	}
+
+	private void scheduleFrame() {
+		if (frameScheduled) return;
+
+		frameScheduled = true;
+		choreographer.postFrameCallback(frameCallback);
+	}
+
+	private void cancelLongPress() {
+		if (longPressScheduled) {
+			choreographer.removeFrameCallback(longPressCallback);
+			longPressScheduled = false;
+		}
+	}
+
+	private void cancel() {
+		cancelLongPress();
+		if (frameScheduled) {
+			choreographer.removeFrameCallback(frameCallback);
+			frameScheduled = false;
+		}
+		pendingScrub = false;
+		scrubbing = false;
+	}
+
 
 	public interface ScrubListener {
 		void onScrubbed(float x, float y);
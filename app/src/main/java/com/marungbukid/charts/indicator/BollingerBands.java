@@ -0,0 +1,86 @@
+package com.marungbukid.charts.indicator;
+
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+/**
+ * Simple moving average with bands {@code k} standard deviations above and below it.
+ * <p>
+ * Mean and variance of the window are maintained with Welford's update, adding the newest value
+ * and removing the one leaving the window, which stays accurate where a sum of squares would not.
+ */
+public class BollingerBands extends Indicator {
+    public static final int LINE_MIDDLE = 0;
+    public static final int LINE_UPPER = 1;
+    public static final int LINE_LOWER = 2;
+
+    private final int period;
+    private final float k;
+    private double mean;
+    // sum of squared differences from the mean over the window
+    private double m2;
+    private double savedMean;
+    private double savedM2;
+
+    public BollingerBands(int period, float k) {
+        super(3);
+        if (period < 2) {
+            throw new IllegalArgumentException("period must be at least 2: " + period);
+        }
+        this.period = period;
+        this.k = k;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    @Override
+    protected void reset() {
+        mean = 0;
+        m2 = 0;
+    }
+
+    @Override
+    protected boolean saveState() {
+        savedMean = mean;
+        savedM2 = m2;
+        return true;
+    }
+
+    @Override
+    protected void restoreState() {
+        mean = savedMean;
+        m2 = savedM2;
+    }
+
+    @Override
+    protected void compute(@NonNull BaseChartAdapter source, int index, @NonNull float[][] outputs) {
+        final double value = source.getY(index);
+
+        if (index < period) {
+            final double delta = value - mean;
+            mean += delta / (index + 1);
+            m2 += delta * (value - mean);
+        } else {
+            // slide the window: replace the oldest value with the newest
+            final double old = source.getY(index - period);
+            final double oldMean = mean;
+            mean += (value - old) / period;
+            m2 += (value - old) * (value - mean + old - oldMean);
+        }
+
+        if (index < period - 1) {
+            outputs[LINE_MIDDLE][index] = Float.NaN;
+            outputs[LINE_UPPER][index] = Float.NaN;
+            outputs[LINE_LOWER][index] = Float.NaN;
+            return;
+        }
+
+        final double deviation = Math.sqrt(Math.max(m2, 0) / period);
+        outputs[LINE_MIDDLE][index] = (float) mean;
+        outputs[LINE_UPPER][index] = (float) (mean + k * deviation);
+        outputs[LINE_LOWER][index] = (float) (mean - k * deviation);
+    }
+}
@@ -0,0 +1,64 @@
+package com.marungbukid.charts.indicator;
+
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+/**
+ * Exponential moving average with a smoothing factor of {@code 2 / (period + 1)}, seeded with
+ * the simple average of the first {@code period} values.
+ */
+public class ExponentialMovingAverage extends Indicator {
+    private final int period;
+    private final double alpha;
+    private double ema;
+    private double savedEma;
+
+    public ExponentialMovingAverage(int period) {
+        super(1);
+        if (period < 1) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        this.period = period;
+        this.alpha = 2.0 / (period + 1);
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    @Override
+    protected void reset() {
+        ema = 0;
+    }
+
+    @Override
+    protected boolean saveState() {
+        savedEma = ema;
+        return true;
+    }
+
+    @Override
+    protected void restoreState() {
+        ema = savedEma;
+    }
+
+    @Override
+    protected void compute(@NonNull BaseChartAdapter source, int index, @NonNull float[][] outputs) {
+        final float value = source.getY(index);
+
+        if (index < period) {
+            // accumulate the seed
+            ema += value;
+            if (index < period - 1) {
+                outputs[0][index] = Float.NaN;
+                return;
+            }
+            ema /= period;
+        } else {
+            ema += alpha * (value - ema);
+        }
+
+        outputs[0][index] = (float) ema;
+    }
+}
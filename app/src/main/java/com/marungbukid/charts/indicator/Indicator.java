@@ -0,0 +1,140 @@
+package com.marungbukid.charts.indicator;
+
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+/**
+ * A series derived point by point from the Y values of an adapter, e.g. a moving average.
+ * <p>
+ * Results are kept in primitive buffers tagged with the adapter's data version. The adapter tells
+ * through {@link BaseChartAdapter#getUnchangedCount(int)} how it changed since: after appended
+ * points only the new points are computed, each in O(1), and after a replaced last point, such as
+ * a live price, only that point is computed again if the indicator saved its state before it.
+ * Any other change, or an adapter that cannot tell, recomputes from the start. Points before the
+ * indicator is warmed up are {@link Float#NaN}.
+ */
+public abstract class Indicator {
+    private final float[][] outputs;
+    // adapter the outputs were computed from
+    private BaseChartAdapter source;
+    private int count;
+    private int sourceVersion;
+    private boolean computed;
+    // whether saveState() holds the state from before the last computed point
+    private boolean lastSaved;
+
+    protected Indicator(int lineCount) {
+        outputs = new float[lineCount][0];
+    }
+
+    /**
+     * Brings the outputs up to date with the adapter.
+     */
+    public final void update(@NonNull BaseChartAdapter source) {
+        update(source, source.pin());
+    }
+
+    /**
+     * Brings the outputs up to date with {@code data}, pinned from {@code source} with
+     * {@link BaseChartAdapter#pin()}, so they match what the chart projected in the same pass.
+     */
+    public final void update(@NonNull BaseChartAdapter source, @NonNull BaseChartAdapter data) {
+        final int sourceCount = data.getCount();
+        final int version = data.getDataVersion();
+        final boolean sameSource = computed && source == this.source;
+        if (sameSource && version == sourceVersion && sourceCount == count) return;
+
+        final int unchanged = sameSource ? data.getUnchangedCount(sourceVersion) : -1;
+        final int from;
+        if (unchanged >= count) {
+            // points were appended
+            from = count;
+        } else if (unchanged == count - 1 && lastSaved) {
+            // the last point was replaced, points may have been appended after it
+            restoreState();
+            from = count - 1;
+        } else {
+            reset();
+            from = 0;
+        }
+
+        ensureCapacity(sourceCount);
+        lastSaved = false;
+        for (int i = from; i < sourceCount; i++) {
+            if (i == sourceCount - 1) lastSaved = saveState();
+            compute(data, i, outputs);
+        }
+
+        this.source = source;
+        count = sourceCount;
+        sourceVersion = version;
+        computed = true;
+    }
+
+    /**
+     * Forces a full recompute on the next {@link #update}, for edits the adapter does not
+     * report.
+     */
+    public final void invalidate() {
+        computed = false;
+    }
+
+    /**
+     * @return the number of lines this indicator draws, e.g. three for Bollinger bands.
+     */
+    public final int getLineCount() {
+        return outputs.length;
+    }
+
+    /**
+     * @return the number of computed points.
+     */
+    public final int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the value of a line at the given index, NaN while warming up.
+     */
+    public final float getValue(int line, int index) {
+        return outputs[line][index];
+    }
+
+    /**
+     * Clears the running state before a full recompute.
+     */
+    protected abstract void reset();
+
+    /**
+     * Saves the running state, called before the last point is computed. Returns false by
+     * default, a replaced last point then recomputes everything.
+     *
+     * @return whether the state was saved and {@link #restoreState()} can bring it back.
+     */
+    protected boolean saveState() {
+        return false;
+    }
+
+    /**
+     * Restores the state saved by {@link #saveState()}, to compute the last point again.
+     */
+    protected void restoreState() {
+    }
+
+    /**
+     * Computes every line at {@code index}, given that all earlier indices are computed.
+     */
+    protected abstract void compute(@NonNull BaseChartAdapter source, int index, @NonNull float[][] outputs);
+
+    private void ensureCapacity(int capacity) {
+        if (outputs.length == 0 || outputs[0].length >= capacity) return;
+
+        final int newCapacity = Math.max(capacity, outputs[0].length + (outputs[0].length >> 1));
+        for (int line = 0; line < outputs.length; line++) {
+            final float[] grown = new float[newCapacity];
+            System.arraycopy(outputs[line], 0, grown, 0, count);
+            outputs[line] = grown;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.marungbukid.charts.indicator;
+
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+/**
+ * Arithmetic mean of the last {@code period} values, kept as a running sum.
+ */
+public class SimpleMovingAverage extends Indicator {
+    private final int period;
+    private double sum;
+    private double savedSum;
+
+    public SimpleMovingAverage(int period) {
+        super(1);
+        if (period < 1) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        this.period = period;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    @Override
+    protected void reset() {
+        sum = 0;
+    }
+
+    @Override
+    protected boolean saveState() {
+        savedSum = sum;
+        return true;
+    }
+
+    @Override
+    protected void restoreState() {
+        sum = savedSum;
+    }
+
+    @Override
+    protected void compute(@NonNull BaseChartAdapter source, int index, @NonNull float[][] outputs) {
+        sum += source.getY(index);
+        if (index >= period) {
+            sum -= source.getY(index - period);
+        }
+
+        outputs[0][index] = index >= period - 1 ? (float) (sum / period) : Float.NaN;
+    }
+}
@@ -0,0 +1,57 @@
+package com.marungbukid.charts.indicator;
+
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+/**
+ * Cumulative volume weighted average price, using the adapter's Y values as prices.
+ */
+public class VolumeWeightedAveragePrice extends Indicator {
+
+    /**
+     * Supplies the traded volume of each adapter index.
+     */
+    public interface VolumeSource {
+        float getVolume(int index);
+    }
+
+    private final VolumeSource volumeSource;
+    private double priceVolume;
+    private double volume;
+    private double savedPriceVolume;
+    private double savedVolume;
+
+    public VolumeWeightedAveragePrice(@NonNull VolumeSource volumeSource) {
+        super(1);
+        this.volumeSource = volumeSource;
+    }
+
+    @Override
+    protected void reset() {
+        priceVolume = 0;
+        volume = 0;
+    }
+
+    @Override
+    protected boolean saveState() {
+        savedPriceVolume = priceVolume;
+        savedVolume = volume;
+        return true;
+    }
+
+    @Override
+    protected void restoreState() {
+        priceVolume = savedPriceVolume;
+        volume = savedVolume;
+    }
+
+    @Override
+    protected void compute(@NonNull BaseChartAdapter source, int index, @NonNull float[][] outputs) {
+        final double pointVolume = volumeSource.getVolume(index);
+        priceVolume += source.getY(index) * pointVolume;
+        volume += pointVolume;
+
+        outputs[0][index] = volume > 0 ? (float) (priceVolume / volume) : Float.NaN;
+    }
+}
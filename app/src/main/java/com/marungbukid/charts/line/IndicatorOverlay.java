@@ -0,0 +1,85 @@
+package com.marungbukid.charts.line;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChart;
+import com.marungbukid.charts.BaseChartAdapter;
+import com.marungbukid.charts.indicator.Indicator;
+
+/**
+ * Draws the lines of an {@link Indicator} on top of a line chart, projected with the chart's scale.
+ */
+final class IndicatorOverlay {
+    final Indicator indicator;
+    final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path[] paths;
+
+    IndicatorOverlay(@NonNull Indicator indicator, @ColorInt int color, float lineWidth) {
+        this.indicator = indicator;
+
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setColor(color);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setStrokeJoin(Paint.Join.ROUND);
+        paint.setStrokeWidth(lineWidth);
+
+        paths = new Path[indicator.getLineCount()];
+        for (int line = 0; line < paths.length; line++) {
+            paths[line] = new Path();
+        }
+    }
+
+    /**
+     * Brings the indicator up to date with the data pinned from the adapter and projects its
+     * lines.
+     */
+    void rebuild(
+            @NonNull BaseChartAdapter adapter,
+            @NonNull BaseChartAdapter data,
+            @NonNull BaseChart.ScaleHelper scaleHelper
+    ) {
+        indicator.update(adapter, data);
+
+        final int count = indicator.getCount();
+        for (int line = 0; line < paths.length; line++) {
+            final Path path = paths[line];
+            path.rewind();
+
+            // start a new contour after every gap, such as the warm-up period
+            boolean drawing = false;
+            for (int i = 0; i < count; i++) {
+                final float value = indicator.getValue(line, i);
+                if (Float.isNaN(value)) {
+                    drawing = false;
+                    continue;
+                }
+
+                final float x = scaleHelper.getX(data.getX(i));
+                final float y = scaleHelper.getY(value);
+                if (drawing) {
+                    path.lineTo(x, y);
+                } else {
+                    path.moveTo(x, y);
+                    drawing = true;
+                }
+            }
+        }
+    }
+
+    void clear() {
+        for (Path path : paths) {
+            path.rewind();
+        }
+    }
+
+    void draw(@NonNull Canvas canvas) {
+        for (Path path : paths) {
+            canvas.drawPath(path, paint);
+        }
+    }
+}
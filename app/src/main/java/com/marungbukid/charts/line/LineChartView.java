@@ -1,28 +1,36 @@
 package com.marungbukid.charts.line;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
 import android.graphics.Canvas;
-import android.graphics.CornerPathEffect;
 import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.RecordingCanvas;
 import android.graphics.RectF;
+import android.graphics.RenderNode;
 import android.graphics.Shader;
-import android.os.Handler;
+import android.os.Build;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.ViewConfiguration;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 
 import com.marungbukid.charts.BaseChart;
 import com.marungbukid.charts.BaseChartAdapter;
+import com.marungbukid.charts.ChartMetrics;
 import com.marungbukid.charts.R;
 import com.marungbukid.charts.gestures.ScrubGestureDetector;
+import com.marungbukid.charts.indicator.Indicator;
+import com.marungbukid.charts.render.CoordinateBufferPool;
 import com.marungbukid.util.ColorUtil;
 
 import java.lang.annotation.Retention;
@@ -65,6 +73,31 @@ public class LineChartView extends BaseChart {
         int TOWARD_ZERO = 3;
     }
 
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({
+            Smoothing.NONE,
+            Smoothing.MONOTONE,
+            Smoothing.CATMULL_ROM,
+    })
+    public @interface Smoothing {
+        /**
+         * Smoothing constant for straight segments between the points.
+         */
+        int NONE = 0;
+
+        /**
+         * Smoothing constant for a monotone cubic curve, which never goes above or below the
+         * points it connects, so it shows no highs or lows that are not in the data.
+         */
+        int MONOTONE = 1;
+
+        /**
+         * Smoothing constant for a Catmull-Rom curve. Rounder than monotone, but may overshoot
+         * around sharp turns.
+         */
+        int CATMULL_ROM = 2;
+    }
+
     // styleable values
     @ColorInt
     private int lineColor;
@@ -73,6 +106,8 @@ public class LineChartView extends BaseChart {
     private int fillColor;
     @FillType
     private int fillType = FillType.NONE;
+    @Smoothing
+    private int smoothing = Smoothing.NONE;
     private boolean scrubEnabled = false;
     @ColorInt
     private int scrubLineColor;
@@ -90,11 +125,7 @@ public class LineChartView extends BaseChart {
     private int scrubPointMarkerColor;
 
     // paths for the onDraw data
-    private final Path renderPath = new Path();
-    private final Path linePath = new Path();
-    private final Path baseLinePath = new Path();
     private final Path scrubLinePath = new Path();
-    private final Path gradientPath = new Path();
     private Path lastPointMarkerPath;
     private Path lastPointMarkerRipplePath;
     private Path scrubPointMarkerPath;
@@ -110,8 +141,47 @@ public class LineChartView extends BaseChart {
     private Paint scrubPointMarkerPaint;
     private Paint scrubPointMarkerRipplePaint;
     private final RectF contentRect = new RectF();
-    private List<Float> xPoints;
-    private List<Float> yPoints;
+    private final RectF dataBounds = new RectF();
+    // projected data, possibly shared with other views through LineGeometryCache
+    @Nullable
+    private LineGeometry geometry;
+    // the adapter data the geometry was projected from, pinned so scrubs read the same points
+    @Nullable
+    private BaseChartAdapter data;
+    // geometry was given back while detached or hidden, rebuild it when shown again
+    private boolean geometryReleased;
+    // y the fill polygon closes along, NaN without fill
+    private float fillEdge = Float.NaN;
+    // fill polygons of the full and the level of detail line, built with the fill stage. Kept
+    // here rather than in the shared geometry, since views differ in fill type and padding.
+    private final Path fillPath = new Path();
+    private final Path lodFillPath = new Path();
+    private final List<IndicatorOverlay> overlays = new ArrayList<>();
+
+    // render stages: layout -> geometry (bounds, projection, paths) -> fill polygon and markers,
+    // with the fill shader on the side. Setters only mark the stages their value feeds into, and
+    // marked stages are rebuilt at most once, before the next frame. Paint colours and widths
+    // that no stage depends on go straight to their paint.
+    private static final int STAGE_LAYOUT = 1;
+    private static final int STAGE_GEOMETRY = 1 << 1;
+    private static final int STAGE_FILL = 1 << 2;
+    private static final int STAGE_SHADER = 1 << 3;
+    private static final int STAGE_MARKERS = 1 << 4;
+    private int dirtyStages = STAGE_LAYOUT | STAGE_SHADER;
+
+    // level of detail: a reduced line is drawn while scrubbing, zooming or animating
+    private boolean levelOfDetailEnabled = true;
+    private int interactionCount;
+    private boolean scrubInteraction;
+    private boolean drawLevelOfDetail;
+
+    // line, fill, indicators and annotations, recorded once and replayed while only the scrub
+    // line and markers change. Hardware accelerated API 29+ only, null otherwise.
+    @Nullable
+    private RenderNode contentNode;
+    private boolean contentDirty = true;
+    // the current scrub composites the content from a layer rather than drawing a reduced line
+    private boolean scrubLayer;
 
     public LineChartView(Context context) {
         super(context);
@@ -136,39 +206,111 @@ public class LineChartView extends BaseChart {
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        updateContentRect();
+        dirtyStages |= STAGE_LAYOUT | STAGE_SHADER;
         populatePath();
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-        canvas.drawPath(baseLinePath, baseLinePaint);
+        // catch up on anything set since the last frame
+        updateStages();
 
-        if (fillType != FillType.NONE) {
-            canvas.drawPath(gradientPath, fillPaint);
+        final long drawStage = beginStage(ChartMetrics.Stage.DRAW);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated()) {
+            drawContentNode(canvas);
+        } else {
+            drawContent(canvas);
         }
 
-        canvas.drawPath(renderPath, linePaint);
-
         if (lastPointMarkerEnabled) {
             canvas.drawPath(lastPointMarkerRipplePath, lastPointMarkerRipplePaint);
             canvas.drawPath(lastPointMarkerPath, lastPointMarkerPaint);
         }
 
-        if (scrubEnabled) {
+        if (scrubEnabled && scrubPointMarkerPath != null) {
             canvas.drawPath(scrubPointMarkerRipplePath, scrubPointMarkerRipplePaint);
             canvas.drawPath(scrubPointMarkerPath, scrubPointMarkerPaint);
         }
 
         canvas.drawPath(scrubLinePath, scrubLinePaint);
+
+        endStage(ChartMetrics.Stage.DRAW, drawStage);
+        reportDrawn();
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void drawContentNode(Canvas canvas) {
+        if (contentNode == null) {
+            contentNode = new RenderNode("LineChartContent");
+        }
+
+        final RenderNode node = contentNode;
+        if (contentDirty || !node.hasDisplayList()
+                || node.getWidth() != getWidth() || node.getHeight() != getHeight()) {
+            node.setPosition(0, 0, getWidth(), getHeight());
+            final RecordingCanvas recording = node.beginRecording(getWidth(), getHeight());
+            try {
+                drawContent(recording);
+            } finally {
+                node.endRecording();
+            }
+            contentDirty = false;
+        }
+        canvas.drawRenderNode(node);
+    }
+
+    /**
+     * Draws everything that does not move with a scrub.
+     */
+    private void drawContent(Canvas canvas) {
+        super.onDraw(canvas);
+        if (geometry != null) {
+            canvas.drawPath(geometry.baseLinePath, baseLinePaint);
+
+            final Path lodPath = drawLevelOfDetail ? geometry.getLodPath() : null;
+            if (!Float.isNaN(fillEdge)) {
+                canvas.drawPath(lodPath != null ? lodFillPath : fillPath, fillPaint);
+            }
+
+            canvas.drawPath(lodPath != null ? lodPath : geometry.linePath, linePaint);
+        }
+
+        if (!overlays.isEmpty()) {
+            // indicators can leave the data range the scale was fitted to, keep them off the axes
+            final int saveCount = canvas.save();
+            canvas.clipRect(contentRect);
+            for (int i = 0; i < overlays.size(); i++) {
+                overlays.get(i).draw(canvas);
+            }
+            canvas.restoreToCount(saveCount);
+        }
+
+        drawAnnotations(canvas);
+    }
+
+    @Override
+    public void invalidate() {
+        // anything but the scrub line and markers may have changed, record the content again
+        contentDirty = true;
+        super.invalidate();
+    }
+
+    /**
+     * Redraws only the scrub line and markers, replaying the recorded content where there is one.
+     */
+    private void invalidateScrub() {
+        super.invalidate();
     }
 
     @Override
     public void setPadding(int left, int top, int right, int bottom) {
         super.setPadding(left, top, right, bottom);
-        updateContentRect();
-        populatePath();
+        invalidateStages(STAGE_LAYOUT);
+    }
+
+    @Override
+    protected void onContentPaddingChanged() {
+        invalidateStages(STAGE_LAYOUT);
     }
 
     private void init(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
@@ -178,6 +320,7 @@ public class LineChartView extends BaseChart {
         lineColor = a.getColor(R.styleable.LineChartView_charts_lineColor, 0);
         fillColor = a.getColor(R.styleable.LineChartView_charts_fillColor, 0);
         lineWidth = a.getDimension(R.styleable.LineChartView_charts_lineWidth, 0);
+        smoothing = a.getInt(R.styleable.LineChartView_charts_smoothing, Smoothing.NONE);
 
         scrubEnabled = a.getBoolean(R.styleable.BaseChart_charts_scrubEnabled, false);
         scrubLineColor = a.getColor(R.styleable.BaseChart_charts_scrubLineColor, 0);
@@ -187,31 +330,24 @@ public class LineChartView extends BaseChart {
         int fillType = a.getInt(R.styleable.LineChartView_charts_fillType, FillType.NONE);
         setFillType(fillType);
 
-        if (fillType != FillType.NONE) {
-            topColorGradientFill = a.getColor(R.styleable.BaseChart_charts_topColorGradientFill, 0);
-            bottomColorGradientFill = a.getColor(R.styleable.BaseChart_charts_bottomColorGradientFill, 0);
+        // read even without a fill, so a fill type set later has its colours
+        topColorGradientFill = ColorUtil.colorOpacity(
+                a.getColor(R.styleable.BaseChart_charts_topColorGradientFill, 0), 0.6f);
+        bottomColorGradientFill = ColorUtil.colorOpacity(
+                a.getColor(R.styleable.BaseChart_charts_bottomColorGradientFill, 0), 0.6f);
+        fillPaint.setColor(fillColor);
 
-            topColorGradientFill = ColorUtil.colorOpacity(topColorGradientFill, 0.6f);
-            bottomColorGradientFill = ColorUtil.colorOpacity(bottomColorGradientFill, 0.6f);
-        } else {
-            fillPaint.setColor(fillColor);
-        }
-
-        if (lastPointMarkerEnabled) {
-            lastPointMarkerColor = a.getColor(R.styleable.LineChartView_charts_lastPointMarkerColor, lineColor);
-        }
+        lastPointMarkerColor = a.getColor(R.styleable.LineChartView_charts_lastPointMarkerColor, lineColor);
 
-        if (scrubEnabled) {
-            scrubPointMarkerColor = a.getColor(R.styleable.LineChartView_charts_scrubPointMarkerColor, lineColor);
-        }
+        scrubPointMarkerColor = a.getColor(R.styleable.LineChartView_charts_scrubPointMarkerColor, lineColor);
 
         a.recycle();
 
         linePaint.setStyle(Paint.Style.STROKE);
         linePaint.setColor(lineColor);
         linePaint.setStrokeCap(Paint.Cap.ROUND);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
         linePaint.setStrokeWidth(lineWidth);
-        linePaint.setPathEffect(new CornerPathEffect(4f));
 
         fillPaint.setStyle(Paint.Style.FILL);
         fillPaint.setStrokeWidth(6);
@@ -221,105 +357,177 @@ public class LineChartView extends BaseChart {
         scrubLinePaint.setColor(ColorUtil.colorOpacity(scrubLineColor, 0.8f));
 
         if (lastPointMarkerEnabled) {
-            lastPointMarkerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            lastPointMarkerRipplePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            lastPointMarkerPath = new Path();
-            lastPointMarkerRipplePath = new Path();
-
-            lastPointMarkerPaint.setStyle(Paint.Style.FILL);
-            lastPointMarkerPaint.setColor(lastPointMarkerColor);
-
-            lastPointMarkerRipplePaint.setStyle(Paint.Style.FILL);
-            lastPointMarkerRipplePaint.setColor(ColorUtil.colorOpacity(lastPointMarkerColor, 0.4f));
+            initLastPointMarker();
         }
 
         if (scrubEnabled) {
-            final Handler handler = new Handler();
             final float touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
-            scrubGestureDetector = new ScrubGestureDetector(this, handler, touchSlop);
+            scrubGestureDetector = new ScrubGestureDetector(this, touchSlop);
             scrubGestureDetector.setEnabled(scrubEnabled);
             setOnTouchListener(scrubGestureDetector);
+        }
 
-            scrubPointMarkerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            scrubPointMarkerRipplePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            scrubPointMarkerPath = new Path();
-            scrubPointMarkerRipplePath = new Path();
 
-            scrubPointMarkerPaint.setStyle(Paint.Style.FILL);
-            scrubPointMarkerPaint.setColor(scrubPointMarkerColor);
+        // if animate //create animator
+    }
 
-            scrubPointMarkerRipplePaint.setStyle(Paint.Style.FILL);
-            scrubPointMarkerRipplePaint.setColor(ColorUtil.colorOpacity(scrubPointMarkerColor, 0.4f));
-        }
+    private void initLastPointMarker() {
+        if (lastPointMarkerPaint != null) return;
+
+        lastPointMarkerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        lastPointMarkerRipplePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        lastPointMarkerPath = new Path();
+        lastPointMarkerRipplePath = new Path();
 
+        lastPointMarkerPaint.setStyle(Paint.Style.FILL);
+        lastPointMarkerRipplePaint.setStyle(Paint.Style.FILL);
+        setLastPointMarkerColor(lastPointMarkerColor);
+    }
 
-        xPoints = new ArrayList<>();
-        yPoints = new ArrayList<>();
+    // created on the first scrub, most charts in a list are never scrubbed
+    private void initScrubPointMarker() {
+        if (scrubPointMarkerPaint != null) return;
 
-        // if animate //create animator
+        scrubPointMarkerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        scrubPointMarkerRipplePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        scrubPointMarkerPath = new Path();
+        scrubPointMarkerRipplePath = new Path();
+
+        scrubPointMarkerPaint.setStyle(Paint.Style.FILL);
+        scrubPointMarkerRipplePaint.setStyle(Paint.Style.FILL);
+        setScrubPointMarkerColor(scrubPointMarkerColor);
     }
 
     @Override
     protected void populatePath() {
-        if (adapter == null) return;
+        dirtyStages |= STAGE_GEOMETRY;
+        updateStages();
+        invalidate();
+    }
+
+    /**
+     * Marks render stages to be rebuilt before the next frame.
+     */
+    private void invalidateStages(int stages) {
+        dirtyStages |= stages;
+        invalidate();
+    }
+
+    /**
+     * Rebuilds the marked stages in pipeline order. A stage marks the stages that consume its
+     * output only when that output actually changed, so nothing downstream of an unchanged
+     * stage is redone.
+     */
+    private void updateStages() {
+        if (dirtyStages == 0) return;
+        // keep the marks until there is a size to build for
         if (getWidth() == 0 || getHeight() == 0) return;
 
-        final int adapterCount = adapter.getCount();
+        if ((dirtyStages & STAGE_LAYOUT) != 0) {
+            updateContentRect();
+            dirtyStages |= STAGE_GEOMETRY | STAGE_FILL;
+        }
+        if ((dirtyStages & STAGE_GEOMETRY) != 0) {
+            updateGeometry();
+        }
+        if ((dirtyStages & STAGE_FILL) != 0) {
+            updateFillPath();
+        }
+        if ((dirtyStages & STAGE_SHADER) != 0) {
+            updateFill();
+        }
+        if ((dirtyStages & STAGE_MARKERS) != 0 && geometry != null) {
+            updatePointerLocation(-1, -1);
+        }
+        dirtyStages = 0;
+    }
+
+    private void updateGeometry() {
+        if (adapter == null) return;
+
+        // one consistent view of the data for bounds, projection and overlays, even if the
+        // adapter is written from another thread meanwhile
+        final BaseChartAdapter pinned = adapter.pin();
+        final int adapterCount = pinned.getCount();
 
         if (adapterCount < 2) {
-            clearData();
+            releaseGeometry();
+            geometryReleased = false;
             return;
         }
 
-        scaleHelper = new ScaleHelper(adapter, contentRect, lineWidth, true);
+        final long populateStage = beginStage(ChartMetrics.Stage.POPULATE);
 
-        xPoints.clear();
-        yPoints.clear();
+        // unchanged data, size and style, reuse what was built before
+        LineGeometry newGeometry = LineGeometryCache.get(adapter, pinned, contentRect, getWidth(), smoothing);
+        if (newGeometry == null) {
+            // a resize, an append or a live last point only needs the new points and a new matrix
+            final int prefix = geometry != null ? geometry.matchingPrefix(pinned) : -1;
 
-        linePath.reset();
-        for (int i = 0; i < adapterCount; i++) {
-            final float x = scaleHelper.getX(adapter.getX(i));
-            final float y = scaleHelper.getY(adapter.getY(i));
-
-            xPoints.add(x);
-            yPoints.add(y);
-
-            if (i == 0) {
-                linePath.moveTo(x, y);
+            final long boundsStage = beginStage(ChartMetrics.Stage.BOUNDS);
+            final ScaleHelper newScaleHelper;
+            if (prefix > 0) {
+                geometry.getExtendedBounds(pinned, prefix, dataBounds);
+                newScaleHelper = new ScaleHelper(dataBounds, adapterCount, contentRect, lineWidth, true);
             } else {
-                linePath.lineTo(x, y);
+                newScaleHelper = new ScaleHelper(pinned, contentRect, lineWidth, true);
             }
-        }
+            endStage(ChartMetrics.Stage.BOUNDS, boundsStage);
 
-        gradientPath.reset();
-        gradientPath.addPath(linePath);
-        final Float fillEdge = getFillEdge();
-        if (fillEdge != null) {
-            final float lastX = scaleHelper.getX(adapter.getX(adapter.getCount()) - 1);
+            final long pathStage = beginStage(ChartMetrics.Stage.PATH);
+            newGeometry = new LineGeometry(pinned, prefix > 0 ? geometry : null, prefix,
+                    newScaleHelper, contentRect, getWidth(), smoothing);
+            if (scrubEnabled) newGeometry.getScrubLookup();
+            if (levelOfDetailEnabled) newGeometry.getLodPath();
+            endStage(ChartMetrics.Stage.PATH, pathStage);
 
-            // line up or down to the fill edge
-            gradientPath.lineTo(lastX, fillEdge);
+            LineGeometryCache.put(adapter, newGeometry);
+        }
 
-            // line straight left to far edge of view
-            gradientPath.lineTo(getPaddingStart(), fillEdge);
+        geometryReleased = false;
+        if (newGeometry != geometry) {
+            if (geometry != null) LineGeometryCache.release(geometry);
+            geometry = newGeometry;
+            scaleHelper = geometry.scaleHelper;
+            data = pinned;
 
-            // closes line back on the first point
-            gradientPath.close();
+            // everything projected with the old scale
+            updateOverlays();
+            dirtyStages |= STAGE_FILL | STAGE_MARKERS;
+        } else {
+            // already held, give back the reference just taken
+            LineGeometryCache.release(newGeometry);
         }
 
-        baseLinePath.reset();
-        if (adapter.hasBaseLine()) {
-            float scaledBaseLine = scaleHelper.getY(adapter.getBaseLine());
-            baseLinePath.moveTo(0, scaledBaseLine);
-            baseLinePath.lineTo(getWidth(), scaledBaseLine);
+        endStage(ChartMetrics.Stage.POPULATE, populateStage);
+        reportPopulated(adapterCount, geometry.pointCount);
+    }
+
+    private void updateOverlays() {
+        for (int i = 0; i < overlays.size(); i++) {
+            if (geometry != null) {
+                overlays.get(i).rebuild(adapter, data, scaleHelper);
+            } else {
+                overlays.get(i).clear();
+            }
         }
+    }
 
-        renderPath.reset();
-        renderPath.addPath(linePath);
+    private void updateFillPath() {
+        fillEdge = Float.NaN;
+        fillPath.rewind();
+        lodFillPath.rewind();
+        if (geometry == null) return;
 
-        updateFill();
-        updatePointerLocation(-1, -1);
-        invalidate();
+        final Float edge = getFillEdge();
+        if (edge != null) {
+            fillEdge = edge;
+
+            // build the polygons now rather than on the first frame that needs them
+            geometry.buildFillPath(geometry.linePath, fillEdge, fillPath);
+            final Path lodPath = levelOfDetailEnabled ? geometry.getLodPath() : null;
+            if (lodPath != null) geometry.buildFillPath(lodPath, fillEdge, lodFillPath);
+        }
     }
 
     private void updateContentRect() {
@@ -333,9 +541,17 @@ public class LineChartView extends BaseChart {
         );
     }
 
+    private static int lookupScrubIndex(@NonNull LineGeometry geometry, float x) {
+        final int[] scrubLookup = geometry.getScrubLookup();
+        final int column = (int) x;
+        if (column <= 0) return scrubLookup[0];
+        if (column >= geometry.viewWidth) return scrubLookup[geometry.viewWidth - 1];
+        return scrubLookup[column];
+    }
+
     private void updatePointerLocation(float x, float y) {
         if (adapter == null) return;
-        if (adapter.getCount() < 2) {
+        if (geometry == null) {
             clearData();
             return;
         }
@@ -344,11 +560,11 @@ public class LineChartView extends BaseChart {
 
         final float lastX =
                 x < 0
-                        ? scaleHelper.getX(adapter.getX(adapter.getCount()) - 1)
+                        ? geometry.getLastX()
                         : x;
         final float lastY =
                 y < 0
-                        ? scaleHelper.getY(adapter.getY(adapter.getCount() - 1))
+                        ? geometry.getLastY()
                         : y;
 
         if (lastPointMarkerEnabled) {
@@ -361,6 +577,7 @@ public class LineChartView extends BaseChart {
 
 
         if (scrubEnabled && !isReset) {
+            initScrubPointMarker();
             scrubPointMarkerPath.reset();
             scrubPointMarkerRipplePath.reset();
 
@@ -425,30 +642,290 @@ public class LineChartView extends BaseChart {
     }
 
     private void clearData() {
-        scaleHelper = null;
-        renderPath.reset();
-        linePath.reset();
-        baseLinePath.reset();
-        gradientPath.reset();
-
-        if (lastPointMarkerEnabled) {
-            lastPointMarkerPath.reset();
-            lastPointMarkerRipplePath.reset();
-        }
-
+        releaseGeometry();
+        geometryReleased = false;
         invalidate();
     }
 
     public void setFillType(@FillType int fillType) {
         if (this.fillType != fillType) {
             this.fillType = fillType;
-            populatePath();
+
+            // only the fill polygon depends on the fill type
+            invalidateStages(STAGE_FILL);
         }
     }
 
+    /**
+     * Sets the line colour. Only the paint changes, nothing is re-projected.
+     */
+    public void setLineColor(@ColorInt int lineColor) {
+        this.lineColor = lineColor;
+        linePaint.setColor(lineColor);
+        invalidate();
+    }
+
+    /**
+     * Sets the line width. The line is projected edge to edge of the content whatever its width,
+     * so only the paint changes, nothing is re-projected.
+     */
+    public void setLineWidth(float lineWidth) {
+        if (this.lineWidth != lineWidth) {
+            this.lineWidth = lineWidth;
+            linePaint.setStrokeWidth(lineWidth);
+            invalidate();
+        }
+    }
+
+    /**
+     * Sets how the line is smoothed between points, {@link Smoothing#NONE} by default. The curve
+     * is baked into the geometry once per data change; the points already read are reused, the
+     * adapter is not read again. Straight segments extend the existing path on an append or a
+     * last point update, a curve is rebuilt over the whole series on every change and resize.
+     */
+    public void setSmoothing(@Smoothing int smoothing) {
+        if (this.smoothing != smoothing) {
+            this.smoothing = smoothing;
+            invalidateStages(STAGE_GEOMETRY);
+        }
+    }
+
+    /**
+     * Sets the colours at the top and bottom of the fill gradient, drawn at the same reduced
+     * opacity as the styled ones. Only the shader is recreated.
+     */
+    public void setFillGradientColors(@ColorInt int topColor, @ColorInt int bottomColor) {
+        topColorGradientFill = ColorUtil.colorOpacity(topColor, 0.6f);
+        bottomColorGradientFill = ColorUtil.colorOpacity(bottomColor, 0.6f);
+        invalidateStages(STAGE_SHADER);
+    }
+
+    public void setScrubLineColor(@ColorInt int scrubLineColor) {
+        this.scrubLineColor = scrubLineColor;
+        scrubLinePaint.setColor(ColorUtil.colorOpacity(scrubLineColor, 0.8f));
+        invalidate();
+    }
+
+    /**
+     * Shows a marker on the last point. The marker needs room at the top and end of the view,
+     * so toggling it changes the content rect.
+     */
+    public void setLastPointMarkerEnabled(boolean enabled) {
+        if (lastPointMarkerEnabled != enabled) {
+            lastPointMarkerEnabled = enabled;
+            if (enabled) initLastPointMarker();
+            invalidateStages(STAGE_LAYOUT | STAGE_MARKERS);
+        }
+    }
+
+    public void setLastPointMarkerColor(@ColorInt int color) {
+        lastPointMarkerColor = color;
+        if (lastPointMarkerPaint != null) {
+            lastPointMarkerPaint.setColor(color);
+            lastPointMarkerRipplePaint.setColor(ColorUtil.colorOpacity(color, 0.4f));
+        }
+        invalidate();
+    }
+
+    public void setScrubPointMarkerColor(@ColorInt int color) {
+        scrubPointMarkerColor = color;
+        if (scrubPointMarkerPaint != null) {
+            scrubPointMarkerPaint.setColor(color);
+            scrubPointMarkerRipplePaint.setColor(ColorUtil.colorOpacity(color, 0.4f));
+        }
+        invalidate();
+    }
+
+    /**
+     * Draws an indicator derived from this chart's adapter on top of the line, with the same
+     * scale. The indicator is extended incrementally as the adapter changes. The scale is fitted
+     * to the adapter's data only, parts of the indicator outside it are clipped to the content
+     * area.
+     */
+    public void addIndicator(@NonNull Indicator indicator, @ColorInt int color) {
+        final IndicatorOverlay overlay = new IndicatorOverlay(indicator, color, lineWidth);
+        overlays.add(overlay);
+        if (geometry != null) {
+            overlay.rebuild(adapter, data, scaleHelper);
+        }
+        invalidate();
+    }
+
+    public void removeIndicator(@NonNull Indicator indicator) {
+        for (int i = overlays.size() - 1; i >= 0; i--) {
+            if (overlays.get(i).indicator == indicator) {
+                overlays.remove(i);
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Enables drawing a reduced line while the chart is being scrubbed, zoomed or animated, for
+     * series with several points per pixel. The reduced line keeps the first, lowest, highest
+     * and last point of every pixel column, so extremes stay put when full detail returns one
+     * frame after the interaction ends. Enabled by default.
+     */
+    public void setLevelOfDetailEnabled(boolean enabled) {
+        if (levelOfDetailEnabled != enabled) {
+            levelOfDetailEnabled = enabled;
+            if (!enabled) drawLevelOfDetail = false;
+            invalidateStages(STAGE_FILL);
+        }
+    }
+
+    public boolean isLevelOfDetailEnabled() {
+        return levelOfDetailEnabled;
+    }
+
+    /**
+     * Marks the start of a zoom or animation driven from outside the chart. Calls nest and must be
+     * balanced by {@link #endInteraction()}; scrubbing is tracked by the chart itself.
+     */
+    public void beginInteraction() {
+        interactionCount++;
+        removeCallbacks(refineDetail);
+        if (levelOfDetailEnabled && !drawLevelOfDetail) {
+            drawLevelOfDetail = true;
+            invalidate();
+        }
+    }
+
+    /**
+     * Marks the end of an interaction started with {@link #beginInteraction()}. Full detail is
+     * drawn again on the frame after the last interaction ends.
+     */
+    public void endInteraction() {
+        if (interactionCount == 0) return;
+
+        interactionCount--;
+        if (interactionCount == 0) {
+            removeCallbacks(refineDetail);
+            postOnAnimation(refineDetail);
+        }
+    }
+
+    private void setScrubInteraction(boolean scrubbing) {
+        if (scrubInteraction == scrubbing) return;
+
+        scrubInteraction = scrubbing;
+        if (scrubbing) {
+            // with recorded content, a scrub frame composites the full line from a layer, which
+            // is cheaper than switching to the reduced line and redrawing it
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && contentNode != null) {
+                setContentLayer(true);
+            } else {
+                beginInteraction();
+            }
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && scrubLayer) {
+            setContentLayer(false);
+        } else {
+            endInteraction();
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void setContentLayer(boolean enabled) {
+        scrubLayer = enabled;
+        if (contentNode != null) contentNode.setUseCompositingLayer(enabled, null);
+    }
+
+    private final Runnable refineDetail = new Runnable() {
+        @Override
+        public void run() {
+            if (interactionCount == 0 && drawLevelOfDetail) {
+                drawLevelOfDetail = false;
+                invalidate();
+            }
+        }
+    };
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+        if (geometryReleased) populatePath();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getContext().getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+
+        // a pending refine never runs once detached, start over in full detail
+        removeCallbacks(refineDetail);
+        interactionCount = 0;
+        scrubInteraction = false;
+        drawLevelOfDetail = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && contentNode != null) {
+            setContentLayer(false);
+            contentNode.discardDisplayList();
+        }
+
+        if (geometry != null) {
+            releaseGeometry();
+            geometryReleased = true;
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility == VISIBLE && geometryReleased) populatePath();
+    }
+
+    /**
+     * Gives the geometry back to {@link LineGeometryCache}, which recycles its buffers once no
+     * other view holds it, and drops everything projected with it.
+     */
+    private void releaseGeometry() {
+        if (geometry != null) {
+            LineGeometryCache.release(geometry);
+            geometry = null;
+        }
+        data = null;
+        scaleHelper = null;
+        fillEdge = Float.NaN;
+        fillPath.rewind();
+        lodFillPath.rewind();
+
+        scrubLinePath.reset();
+        if (scrubPointMarkerPath != null) scrubPointMarkerPath.reset();
+        if (scrubPointMarkerRipplePath != null) scrubPointMarkerRipplePath.reset();
+        if (lastPointMarkerPath != null) lastPointMarkerPath.reset();
+        if (lastPointMarkerRipplePath != null) lastPointMarkerRipplePath.reset();
+        updateOverlays();
+    }
+
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level < TRIM_MEMORY_UI_HIDDEN) return;
+
+            // nothing is on screen, the geometry is rebuilt once the window shows again
+            if (geometry != null) {
+                releaseGeometry();
+                geometryReleased = true;
+                invalidate();
+            }
+            LineGeometryCache.trim();
+            CoordinateBufferPool.getInstance().clear();
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+    };
+
     public void setAdapter(@Nullable BaseChartAdapter adapter) {
         if (this.adapter != null) {
             this.adapter.unregisterDataSetObserver(dataSetObserver);
+            if (adapter != this.adapter) clearData();
         }
         this.adapter = adapter;
         if (this.adapter != null) {
@@ -462,7 +939,7 @@ public class LineChartView extends BaseChart {
         scrubLinePath.reset();
         scrubLinePath.moveTo(x, getPaddingTop());
         scrubLinePath.lineTo(x, getHeight() - getPaddingBottom());
-        invalidate();
+        invalidateScrub();
     }
 
     private float resolveBoundedScrubLine(float x) {
@@ -483,31 +960,65 @@ public class LineChartView extends BaseChart {
 
     @Override
     public void onScrubbed(float x, float y) {
-        if (adapter == null || adapter.getCount() == 0) return;
+        final int index = getScrubIndex(x);
+        if (index < 0) return;
 
-        int index = getNearestIndex(xPoints, x);
+        final float pointX = geometry.xPoints[index];
+        final float pointY = geometry.yPoints[index];
 
-        if (scrubListener != null) {
+        if (scrubListener != null || scrubIndexListener != null) {
             getParent().requestDisallowInterceptTouchEvent(true);
             if (scrubListener != null) {
-                scrubListener.onScrubbed(adapter.getItem(index));
+                scrubListener.onScrubbed(data.getItem(index));
+            }
+            if (scrubIndexListener != null) {
+                scrubIndexListener.onScrubbed(index, pointX, pointY);
             }
         }
 
+        dispatchAnnotationScrub(x);
+        setScrubInteraction(true);
         setScrubLine(x);
-        updatePointerLocation(scaleHelper.getX(index), scaleHelper.getY(adapter.getY(index)));
+        updatePointerLocation(pointX, pointY);
     }
 
     @Override
     public void onScrubEnded() {
-        scrubLinePath.reset();
-        scrubPointMarkerPath.reset();
-        scrubPointMarkerRipplePath.reset();
         if (scrubListener != null) scrubListener.onScrubbed(null);
+        if (scrubIndexListener != null) scrubIndexListener.onScrubEnded();
+        dispatchAnnotationScrubEnded();
+        hideScrub();
+    }
+
+    @Override
+    public int getScrubIndex(float x) {
+        if (adapter == null || geometry == null) return -1;
+
+        return lookupScrubIndex(geometry, x);
+    }
+
+    @Override
+    public void showScrubIndex(int index) {
+        if (geometry == null) return;
+
+        index = Math.max(0, Math.min(index, geometry.pointCount - 1));
+        final float pointX = geometry.xPoints[index];
+
+        setScrubInteraction(true);
+        setScrubLine(pointX);
+        updatePointerLocation(pointX, geometry.yPoints[index]);
+    }
+
+    @Override
+    public void hideScrub() {
+        scrubLinePath.reset();
+        if (scrubPointMarkerPath != null) scrubPointMarkerPath.reset();
+        if (scrubPointMarkerRipplePath != null) scrubPointMarkerRipplePath.reset();
         if (lastPointMarkerPath != null) lastPointMarkerPath.reset();
         if (lastPointMarkerRipplePath != null) lastPointMarkerRipplePath.reset();
         updatePointerLocation(-1, -1);
-        invalidate();
+        setScrubInteraction(false);
+        invalidateScrub();
     }
 
 
@@ -515,6 +1026,11 @@ public class LineChartView extends BaseChart {
         @Override
         public void onChanged() {
             super.onChanged();
+            // released while off screen, rebuilt from the latest data when shown again
+            if (geometryReleased) {
+                dirtyStages |= STAGE_GEOMETRY;
+                return;
+            }
             populatePath();
 
 //			if (sparkAnimator != null) {
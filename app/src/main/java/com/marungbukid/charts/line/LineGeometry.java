@@ -0,0 +1,351 @@
+package com.marungbukid.charts.line;
+
+import android.graphics.Matrix;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChart;
+import com.marungbukid.charts.BaseChartAdapter;
+import com.marungbukid.charts.render.CoordinateBufferPool;
+
+/**
+ * Projected points and paths of a line chart for one adapter data version and content rect.
+ * <p>
+ * The raw data points and line are kept next to the projected ones. A new size, or data the
+ * adapter reports as appended to or with a replaced last point, only reads the new points from
+ * the adapter and projects the raw line with the scale's {@link Matrix}, instead of re-reading
+ * and re-scanning the whole series. Smoothing is baked into the raw line by
+ * {@link LineSmoothing}, so no path effect runs at draw time.
+ * <p>
+ * Instances are immutable once built, apart from the lazily built scrub lookup and level of
+ * detail line, so they can be shared between views showing the same adapter. Fill polygons
+ * depend on each view's fill type and padding, so views keep their own. The
+ * coordinate buffers come from {@link CoordinateBufferPool} and go back there once
+ * {@link LineGeometryCache} sees the last view release the geometry.
+ */
+final class LineGeometry {
+    // series with fewer points per pixel column than this are drawn in full even while interacting
+    private static final int LOD_MIN_POINTS_PER_COLUMN = 4;
+    private static final int BYTES_PER_FLOAT = 4;
+    // native bytes a path holds per point: two floats and a verb
+    private static final int PATH_BYTES_PER_POINT = 9;
+
+    // inputs the geometry was built for
+    final int dataVersion;
+    final RectF contentRect = new RectF();
+    final int viewWidth;
+    @LineChartView.Smoothing
+    final int smoothing;
+
+    final BaseChart.ScaleHelper scaleHelper;
+    // unprojected points and line, kept so a new scale or appended data does not re-read the
+    // whole adapter
+    private final float[] rawX;
+    private final float[] rawY;
+    private final Path rawPath = new Path();
+    private final RectF dataBounds = new RectF();
+    private final boolean hasBaseLine;
+    private final float baseLine;
+
+    final float[] xPoints;
+    final float[] yPoints;
+    final int pointCount;
+    final Path linePath = new Path();
+    final Path baseLinePath = new Path();
+
+    // nearest point index for each pixel column, only built for charts that scrub
+    private int[] scrubLookup;
+    // reduced line drawn during interactions, only built for series denser than the view
+    private Path lodPath;
+    private boolean lodBuilt;
+
+    // views holding this geometry, guarded by LineGeometryCache
+    int references;
+    // still reachable through LineGeometryCache
+    boolean cached;
+
+    /**
+     * Reads and projects every point of the adapter.
+     */
+    LineGeometry(
+            @NonNull BaseChartAdapter adapter,
+            @NonNull BaseChart.ScaleHelper scaleHelper,
+            @NonNull RectF contentRect,
+            int viewWidth,
+            @LineChartView.Smoothing int smoothing
+    ) {
+        this(adapter, null, 0, scaleHelper, contentRect, viewWidth, smoothing);
+    }
+
+    /**
+     * Reuses the first {@code prefix} raw points of {@code source}, as found by
+     * {@link #matchingPrefix(BaseChartAdapter)}, and only reads the rest from the adapter.
+     */
+    LineGeometry(
+            @NonNull BaseChartAdapter adapter,
+            @Nullable LineGeometry source,
+            int prefix,
+            @NonNull BaseChart.ScaleHelper scaleHelper,
+            @NonNull RectF contentRect,
+            int viewWidth,
+            @LineChartView.Smoothing int smoothing
+    ) {
+        this.dataVersion = adapter.getDataVersion();
+        this.contentRect.set(contentRect);
+        this.viewWidth = viewWidth;
+        this.smoothing = smoothing;
+        this.scaleHelper = scaleHelper;
+        scaleHelper.getDataBounds(dataBounds);
+
+        pointCount = adapter.getCount();
+        rawX = CoordinateBufferPool.getInstance().acquire(pointCount);
+        rawY = CoordinateBufferPool.getInstance().acquire(pointCount);
+        xPoints = CoordinateBufferPool.getInstance().acquire(pointCount);
+        yPoints = CoordinateBufferPool.getInstance().acquire(pointCount);
+
+        // a straight line is extended in place, a curve is rebuilt since a new point also bends
+        // the segment before it
+        final boolean extendPath = source != null && prefix > 0
+                && smoothing == LineChartView.Smoothing.NONE
+                && source.smoothing == LineChartView.Smoothing.NONE;
+
+        int from = 0;
+        if (source != null && prefix > 0) {
+            System.arraycopy(source.rawX, 0, rawX, 0, prefix);
+            System.arraycopy(source.rawY, 0, rawY, 0, prefix);
+            if (extendPath) rawPath.set(source.rawPath);
+            if (prefix < source.pointCount) {
+                // the last point was updated in place
+                rawX[prefix] = adapter.getX(prefix);
+                rawY[prefix] = adapter.getY(prefix);
+                if (extendPath) rawPath.setLastPoint(rawX[prefix], rawY[prefix]);
+                from = prefix + 1;
+            } else {
+                from = prefix;
+            }
+        }
+
+        for (int i = from; i < pointCount; i++) {
+            final float x = adapter.getX(i);
+            final float y = adapter.getY(i);
+
+            rawX[i] = x;
+            rawY[i] = y;
+
+            if (extendPath) rawPath.lineTo(x, y);
+        }
+
+        if (!extendPath) {
+            LineSmoothing.build(rawPath, rawX, rawY, pointCount, smoothing);
+        }
+
+        // project with the matrix rather than per point, curves included, the stroke is applied
+        // afterwards so the line width does not scale with the data
+        final Matrix matrix = new Matrix();
+        scaleHelper.getMatrix(matrix);
+        rawPath.transform(matrix, linePath);
+        for (int i = 0; i < pointCount; i++) {
+            xPoints[i] = scaleHelper.getX(rawX[i]);
+            yPoints[i] = scaleHelper.getY(rawY[i]);
+        }
+
+        hasBaseLine = adapter.hasBaseLine();
+        baseLine = adapter.getBaseLine();
+        if (hasBaseLine) {
+            float scaledBaseLine = scaleHelper.getY(baseLine);
+            baseLinePath.moveTo(0, scaledBaseLine);
+            baseLinePath.lineTo(viewWidth, scaledBaseLine);
+        }
+    }
+
+    /**
+     * @return how many leading raw points are still valid for the adapter, as the adapter
+     * reports through {@link BaseChartAdapter#getUnchangedCount(int)}: all of them if the data is
+     * unchanged or was only appended to, all but the last if the last point was replaced, or -1
+     * if the data changed otherwise or the adapter cannot tell.
+     */
+    int matchingPrefix(@NonNull BaseChartAdapter adapter) {
+        final int count = adapter.getCount();
+        if (adapter.getDataVersion() == dataVersion && count == pointCount) return pointCount;
+        if (pointCount < 2 || count < pointCount || adapter.hasBaseLine() != hasBaseLine) return -1;
+        if (hasBaseLine && adapter.getBaseLine() != baseLine) return -1;
+
+        final int unchanged = adapter.getUnchangedCount(dataVersion);
+        if (unchanged >= pointCount) return pointCount;
+
+        // a live last point, reusable unless its old value was the only extreme
+        final int last = pointCount - 1;
+        final float lastY = rawY[last];
+        if (unchanged == last && lastY > dataBounds.top && lastY < dataBounds.bottom) {
+            return last;
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the data bounds of the adapter from the bounds of this geometry, scanning only
+     * the points past {@code prefix}.
+     */
+    void getExtendedBounds(@NonNull BaseChartAdapter adapter, int prefix, @NonNull RectF out) {
+        out.set(dataBounds);
+        final int count = adapter.getCount();
+        for (int i = prefix; i < count; i++) {
+            final float x = adapter.getX(i);
+            final float y = adapter.getY(i);
+            out.left = Math.min(out.left, x);
+            out.right = Math.max(out.right, x);
+            out.top = Math.min(out.top, y);
+            out.bottom = Math.max(out.bottom, y);
+        }
+    }
+
+    boolean matches(
+            @NonNull BaseChartAdapter adapter,
+            @NonNull RectF contentRect,
+            int viewWidth,
+            @LineChartView.Smoothing int smoothing
+    ) {
+        return dataVersion == adapter.getDataVersion()
+                && pointCount == adapter.getCount()
+                && hasLayout(contentRect, viewWidth, smoothing);
+    }
+
+    /**
+     * @return whether this geometry was projected for the same view size and style as
+     * {@code other}, whatever the data.
+     */
+    boolean hasSameLayout(@NonNull LineGeometry other) {
+        return hasLayout(other.contentRect, other.viewWidth, other.smoothing);
+    }
+
+    private boolean hasLayout(
+            @NonNull RectF contentRect,
+            int viewWidth,
+            @LineChartView.Smoothing int smoothing
+    ) {
+        return this.viewWidth == viewWidth
+                && this.smoothing == smoothing
+                && this.contentRect.left == contentRect.left
+                && this.contentRect.top == contentRect.top
+                && this.contentRect.right == contentRect.right
+                && this.contentRect.bottom == contentRect.bottom;
+    }
+
+    /**
+     * @return the nearest point lookup with one entry per pixel column of the view.
+     */
+    @NonNull
+    synchronized int[] getScrubLookup() {
+        if (scrubLookup == null) {
+            scrubLookup = new int[Math.max(viewWidth, 1)];
+            BaseChart.buildNearestIndexLookup(xPoints, pointCount, scrubLookup, viewWidth);
+        }
+        return scrubLookup;
+    }
+
+    /**
+     * @return a line with at most four points per pixel column: the first, lowest, highest and
+     * last point of the column, in order. It has the same extremes and end points as the full
+     * line, so swapping between the two does not visibly pop. Null if the series is not dense
+     * enough for this to pay off.
+     */
+    @Nullable
+    synchronized Path getLodPath() {
+        if (lodBuilt) return lodPath;
+        lodBuilt = true;
+
+        final float left = contentRect.left;
+        if (pointCount <= LOD_MIN_POINTS_PER_COLUMN * Math.max(contentRect.width(), 1)) return null;
+
+        lodPath = new Path();
+        int start = 0;
+        while (start < pointCount) {
+            final int column = (int) (xPoints[start] - left);
+
+            int end = start + 1;
+            int min = start;
+            int max = start;
+            while (end < pointCount && (int) (xPoints[end] - left) == column) {
+                if (yPoints[end] < yPoints[min]) min = end;
+                if (yPoints[end] > yPoints[max]) max = end;
+                end++;
+            }
+
+            // indices are in order: start <= first <= second <= last
+            final int first = Math.min(min, max);
+            final int second = Math.max(min, max);
+            final int last = end - 1;
+            addLodPoint(start);
+            if (first != start) addLodPoint(first);
+            if (second != first) addLodPoint(second);
+            if (last != second) addLodPoint(last);
+
+            start = end;
+        }
+        return lodPath;
+    }
+
+    /**
+     * Sets {@code out} to {@code line}, the full or the level of detail line of this geometry,
+     * closed along {@code fillEdge} back to the content start.
+     */
+    void buildFillPath(@NonNull Path line, float fillEdge, @NonNull Path out) {
+        out.rewind();
+        out.addPath(line);
+
+        // line up or down to the fill edge
+        out.lineTo(getLastX(), fillEdge);
+
+        // line straight left to far edge of view
+        out.lineTo(contentRect.left, fillEdge);
+
+        // closes line back on the first point
+        out.close();
+    }
+
+    /**
+     * @return an estimate of the memory held by the coordinate buffers and the raw and projected
+     * line paths.
+     */
+    long getRetainedBytes() {
+        final long buffers = (long) rawX.length + rawY.length + xPoints.length + yPoints.length;
+        return buffers * BYTES_PER_FLOAT + 2L * PATH_BYTES_PER_POINT * pointCount;
+    }
+
+    /**
+     * Frees the paths and hands the coordinate buffers back to the pool. Only called by
+     * {@link LineGeometryCache} once no view holds the geometry.
+     */
+    synchronized void recycle() {
+        rawPath.reset();
+        linePath.reset();
+        baseLinePath.reset();
+        if (lodPath != null) lodPath.reset();
+        lodPath = null;
+        scrubLookup = null;
+
+        CoordinateBufferPool.getInstance().release(rawX);
+        CoordinateBufferPool.getInstance().release(rawY);
+        CoordinateBufferPool.getInstance().release(xPoints);
+        CoordinateBufferPool.getInstance().release(yPoints);
+    }
+
+    private void addLodPoint(int index) {
+        if (lodPath.isEmpty()) {
+            lodPath.moveTo(xPoints[index], yPoints[index]);
+        } else {
+            lodPath.lineTo(xPoints[index], yPoints[index]);
+        }
+    }
+
+    float getLastX() {
+        return xPoints[pointCount - 1];
+    }
+
+    float getLastY() {
+        return yPoints[pointCount - 1];
+    }
+}
@@ -0,0 +1,173 @@
+package com.marungbukid.charts.line;
+
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChartAdapter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide cache holding the latest {@link LineGeometry} of each adapter, one per view size
+ * and style the adapter is drawn with.
+ * <p>
+ * A view recreated after a configuration change, re-attached, or re-laid out with the same
+ * size and padding finds the geometry built before instead of projecting the data again, and
+ * views of different sizes showing the same adapter each keep their own. Geometries are
+ * reference counted: views take one with {@link #get} or {@link #put} and give it back with
+ * {@link #release}. The few most recently released ones stay cached for a quick reattach as long
+ * as they fit a byte budget, so only small series stay warm off screen. Older ones and those
+ * replaced by newer data are recycled into the buffer pool. Entries go away together with their
+ * adapter.
+ */
+final class LineGeometryCache {
+    // unreferenced geometries kept around, enough to cover a configuration change of one screen
+    private static final int MAX_IDLE = 4;
+    // and at most this many bytes of them, the same as the idle buffers of CoordinateBufferPool.
+    // A million point series holds far more and is rebuilt on reattach instead.
+    private static final long MAX_IDLE_BYTES = 4L * 1024 * 1024;
+
+    // geometries of each adapter, at most one per layout
+    private static final Map<BaseChartAdapter, ArrayList<LineGeometry>> cache = new WeakHashMap<>();
+    // unreferenced cached geometries, least recently released first
+    private static final ArrayDeque<LineGeometry> idle = new ArrayDeque<>();
+    private static long idleBytes;
+
+    private LineGeometryCache() {
+    }
+
+    /**
+     * @return the geometry last built for the adapter with these inputs, if it is still valid
+     * for the data pinned from the adapter. The caller holds a reference to it until
+     * {@link #release}.
+     */
+    @Nullable
+    static synchronized LineGeometry get(
+            @NonNull BaseChartAdapter adapter,
+            @NonNull BaseChartAdapter data,
+            @NonNull RectF contentRect,
+            int viewWidth,
+            @LineChartView.Smoothing int smoothing
+    ) {
+        final ArrayList<LineGeometry> geometries = cache.get(adapter);
+        if (geometries == null) return null;
+
+        LineGeometry result = null;
+        for (int i = geometries.size() - 1; i >= 0; i--) {
+            final LineGeometry geometry = geometries.get(i);
+            if (geometry.matches(data, contentRect, viewWidth, smoothing)) {
+                result = geometry;
+            } else if (geometry.references == 0 && geometry.dataVersion != data.getDataVersion()) {
+                // nobody draws it and it will not match again once the data has moved on
+                evict(geometry);
+            }
+        }
+        if (result == null) return null;
+
+        if (result.references == 0) removeIdle(result);
+        result.references++;
+        return result;
+    }
+
+    /**
+     * Caches a newly built geometry in place of the adapter's geometry with the same layout, the
+     * caller holds a reference to it until {@link #release}.
+     */
+    static synchronized void put(@NonNull BaseChartAdapter adapter, @NonNull LineGeometry geometry) {
+        geometry.references++;
+        geometry.cached = true;
+
+        ArrayList<LineGeometry> geometries = cache.get(adapter);
+        if (geometries == null) {
+            geometries = new ArrayList<>(2);
+            cache.put(adapter, geometries);
+        }
+
+        for (int i = geometries.size() - 1; i >= 0; i--) {
+            final LineGeometry replaced = geometries.get(i);
+            if (replaced == geometry) return;
+
+            // idle geometries of older data will not match again at any layout
+            if (replaced.hasSameLayout(geometry)
+                    || (replaced.references == 0 && replaced.dataVersion != geometry.dataVersion)) {
+                geometries.remove(i);
+                replaced.cached = false;
+                if (replaced.references == 0) {
+                    removeIdle(replaced);
+                    replaced.recycle();
+                }
+            }
+        }
+        geometries.add(geometry);
+    }
+
+    /**
+     * Gives back a reference taken with {@link #get} or {@link #put}.
+     */
+    static synchronized void release(@NonNull LineGeometry geometry) {
+        if (geometry.references == 0) return;
+
+        geometry.references--;
+        if (geometry.references > 0) return;
+
+        if (!geometry.cached) {
+            geometry.recycle();
+            return;
+        }
+
+        idle.addLast(geometry);
+        idleBytes += geometry.getRetainedBytes();
+        while (!idle.isEmpty() && (idle.size() > MAX_IDLE || idleBytes > MAX_IDLE_BYTES)) {
+            evict(idle.peekFirst());
+        }
+    }
+
+    static synchronized void remove(@NonNull BaseChartAdapter adapter) {
+        final ArrayList<LineGeometry> geometries = cache.remove(adapter);
+        if (geometries == null) return;
+
+        for (int i = 0; i < geometries.size(); i++) {
+            final LineGeometry geometry = geometries.get(i);
+            geometry.cached = false;
+            if (geometry.references == 0) {
+                removeIdle(geometry);
+                geometry.recycle();
+            }
+        }
+    }
+
+    /**
+     * Recycles every geometry no view is holding.
+     */
+    static synchronized void trim() {
+        while (!idle.isEmpty()) {
+            evict(idle.peekFirst());
+        }
+    }
+
+    private static void removeIdle(@NonNull LineGeometry geometry) {
+        if (idle.remove(geometry)) {
+            idleBytes -= geometry.getRetainedBytes();
+        }
+    }
+
+    private static void evict(@NonNull LineGeometry geometry) {
+        removeIdle(geometry);
+        final Iterator<ArrayList<LineGeometry>> lists = cache.values().iterator();
+        while (lists.hasNext()) {
+            final ArrayList<LineGeometry> geometries = lists.next();
+            if (geometries.remove(geometry)) {
+                if (geometries.isEmpty()) lists.remove();
+                break;
+            }
+        }
+        geometry.cached = false;
+        geometry.recycle();
+    }
+}
@@ -0,0 +1,120 @@
+package com.marungbukid.charts.line;
+
+import android.graphics.Path;
+
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.render.CoordinateBufferPool;
+
+/**
+ * Bakes a line through a series of points into a path, smoothed or not, once per data change
+ * rather than rounding corners with a path effect on every draw.
+ * <p>
+ * The curves pass through every point and are made of cubic Beziers, which keep their shape
+ * under any affine transform, so they can be built in data space and projected with the scale's
+ * matrix like a straight line.
+ */
+final class LineSmoothing {
+    private LineSmoothing() {
+    }
+
+    /**
+     * Replaces the contents of {@code path} with the line through the first {@code count} points.
+     */
+    static void build(
+            @NonNull Path path,
+            @NonNull float[] x,
+            @NonNull float[] y,
+            int count,
+            @LineChartView.Smoothing int smoothing
+    ) {
+        path.rewind();
+        if (count == 0) return;
+
+        path.moveTo(x[0], y[0]);
+        if (count < 3 || smoothing == LineChartView.Smoothing.NONE) {
+            for (int i = 1; i < count; i++) {
+                path.lineTo(x[i], y[i]);
+            }
+        } else if (smoothing == LineChartView.Smoothing.MONOTONE) {
+            monotone(path, x, y, count);
+        } else {
+            catmullRom(path, x, y, count);
+        }
+    }
+
+    /**
+     * Fritsch-Carlson monotone cubic interpolation: between two points the curve never leaves
+     * their y range, so it shows no highs or lows that are not in the data.
+     */
+    private static void monotone(@NonNull Path path, @NonNull float[] x, @NonNull float[] y, int count) {
+        final float[] tangents = CoordinateBufferPool.getInstance().acquire(count);
+
+        // average of the neighbouring secants, flat at local extremes
+        tangents[0] = secant(x, y, 0);
+        tangents[count - 1] = secant(x, y, count - 2);
+        for (int i = 1; i < count - 1; i++) {
+            final float before = secant(x, y, i - 1);
+            final float after = secant(x, y, i);
+            tangents[i] = before * after <= 0 ? 0 : (before + after) / 2;
+        }
+
+        // shorten tangents that would make a segment overshoot
+        for (int i = 0; i < count - 1; i++) {
+            final float secant = secant(x, y, i);
+            if (secant == 0) {
+                tangents[i] = 0;
+                tangents[i + 1] = 0;
+                continue;
+            }
+
+            final float a = tangents[i] / secant;
+            final float b = tangents[i + 1] / secant;
+            final float length = a * a + b * b;
+            if (length > 9) {
+                final float scale = 3 / (float) Math.sqrt(length);
+                tangents[i] = scale * a * secant;
+                tangents[i + 1] = scale * b * secant;
+            }
+        }
+
+        for (int i = 0; i < count - 1; i++) {
+            final float third = (x[i + 1] - x[i]) / 3;
+            if (third == 0) {
+                path.lineTo(x[i + 1], y[i + 1]);
+                continue;
+            }
+
+            path.cubicTo(
+                    x[i] + third, y[i] + tangents[i] * third,
+                    x[i + 1] - third, y[i + 1] - tangents[i + 1] * third,
+                    x[i + 1], y[i + 1]
+            );
+        }
+
+        CoordinateBufferPool.getInstance().release(tangents);
+    }
+
+    /**
+     * Uniform Catmull-Rom spline. Rounder than {@link #monotone} but may overshoot around sharp
+     * turns.
+     */
+    private static void catmullRom(@NonNull Path path, @NonNull float[] x, @NonNull float[] y, int count) {
+        for (int i = 0; i < count - 1; i++) {
+            // the end points are their own outer neighbour
+            final int before = Math.max(i - 1, 0);
+            final int after = Math.min(i + 2, count - 1);
+
+            path.cubicTo(
+                    x[i] + (x[i + 1] - x[before]) / 6, y[i] + (y[i + 1] - y[before]) / 6,
+                    x[i + 1] - (x[after] - x[i]) / 6, y[i + 1] - (y[after] - y[i]) / 6,
+                    x[i + 1], y[i + 1]
+            );
+        }
+    }
+
+    private static float secant(@NonNull float[] x, @NonNull float[] y, int i) {
+        final float dx = x[i + 1] - x[i];
+        return dx != 0 ? (y[i + 1] - y[i]) / dx : 0;
+    }
+}
@@ -0,0 +1,665 @@
+package com.marungbukid.charts.line;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChart;
+import com.marungbukid.charts.R;
+import com.marungbukid.charts.data.SpscPointQueue;
+import com.marungbukid.util.ColorUtil;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A live line chart drawn on its own render thread into a {@link SurfaceView}, for screens
+ * where the UI thread is busy enough to stall a regular {@link LineChartView}.
+ * <p>
+ * Points are handed over without locks: a single feed thread calls {@link #offer(float)}, which
+ * goes through a {@link SpscPointQueue}, or publishes a whole series with
+ * {@link #setSnapshot(float[], int)}. The render thread paces itself with its own
+ * {@link Choreographer}, so frames keep coming while the UI thread is blocked, and only renders
+ * when something changed. The surface is cleared to {@link #setSurfaceColor(int)} on every
+ * frame. Every attach starts a new render thread with state of its own, which takes the points
+ * over from the last one once that has finished its final frame, so the UI thread never waits
+ * for a render thread.
+ * <p>
+ * Only the line is drawn: of the {@link LineChartView} styleables it reads the line colour, width
+ * and smoothing, the fill type, colour and gradient, and the last point marker. Axes, scrubbing
+ * and axis fonts are not supported and their attributes are ignored.
+ */
+public class LiveLineChartSurface extends SurfaceView implements SurfaceHolder.Callback {
+    private static final int DEFAULT_MAX_POINTS = 1024;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    // how long surfaceDestroyed waits for the frame being drawn
+    private static final long RELEASE_TIMEOUT_MS = 500;
+
+    private final SpscPointQueue queue = new SpscPointQueue(DEFAULT_QUEUE_CAPACITY,
+            SpscPointQueue.OverflowPolicy.REJECT);
+    private final AtomicReference<Snapshot> pendingSnapshot = new AtomicReference<>();
+    // points accepted by offer, feed thread only
+    private long offered;
+
+    // state of the running render thread, null while detached
+    @Nullable
+    private volatile RenderState state;
+    // state of the last render thread, which may still be drawing, until the next one takes it
+    @Nullable
+    private RenderState retiredState;
+
+    // style, UI thread only. Each render thread starts from it and is sent every change.
+    private int maxPoints = DEFAULT_MAX_POINTS;
+    @ColorInt
+    private int surfaceColor;
+    @ColorInt
+    private int lineColor;
+    private float lineWidth;
+    @LineChartView.Smoothing
+    private int smoothing;
+    @LineChartView.FillType
+    private int fillType;
+    @ColorInt
+    private final int fillColor;
+    @ColorInt
+    private int topColorGradientFill;
+    @ColorInt
+    private int bottomColorGradientFill;
+    private boolean lastPointMarkerEnabled;
+    @ColorInt
+    private final int lastPointMarkerColor;
+    private final float markerSpacing;
+
+    public LiveLineChartSurface(Context context) {
+        this(context, null);
+    }
+
+    public LiveLineChartSurface(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, R.attr.stockCharts_LineChartViewStyle);
+    }
+
+    public LiveLineChartSurface(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        this(context, attrs, defStyleAttr, R.style.stockCharts_Base_LineChart);
+    }
+
+    public LiveLineChartSurface(Context context, @Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.LineChartView,
+                defStyleAttr, defStyleRes);
+        lineColor = a.getColor(R.styleable.LineChartView_charts_lineColor, 0);
+        lineWidth = a.getDimension(R.styleable.LineChartView_charts_lineWidth, 0);
+        smoothing = a.getInt(R.styleable.LineChartView_charts_smoothing, LineChartView.Smoothing.NONE);
+        fillType = a.getInt(R.styleable.LineChartView_charts_fillType, LineChartView.FillType.NONE);
+        fillColor = a.getColor(R.styleable.LineChartView_charts_fillColor, 0);
+        lastPointMarkerEnabled = a.getBoolean(R.styleable.LineChartView_charts_lastPointMarkerEnabled, false);
+        lastPointMarkerColor = a.getColor(R.styleable.LineChartView_charts_lastPointMarkerColor, lineColor);
+        a.recycle();
+
+        a = context.obtainStyledAttributes(attrs, R.styleable.BaseChart, defStyleAttr, defStyleRes);
+        topColorGradientFill = ColorUtil.colorOpacity(
+                a.getColor(R.styleable.BaseChart_charts_topColorGradientFill, 0), 0.6f);
+        bottomColorGradientFill = ColorUtil.colorOpacity(
+                a.getColor(R.styleable.BaseChart_charts_bottomColorGradientFill, 0), 0.6f);
+        a.recycle();
+
+        markerSpacing = 8 * getResources().getDisplayMetrics().density;
+
+        getHolder().setFormat(PixelFormat.TRANSLUCENT);
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * Queues a point for the next frame without blocking. Must always be called from the same
+     * feed thread as {@link #setSnapshot(float[], int)}.
+     *
+     * @return false if the point was rejected because the render thread is too far behind.
+     */
+    public boolean offer(float value) {
+        if (!queue.offer(0, value)) return false;
+
+        offered++;
+        requestRender();
+        return true;
+    }
+
+    /**
+     * Replaces the whole series with the first {@code count} values, for history loads and
+     * symbol switches. The array is used as it is, not copied, and must not be modified
+     * afterwards. Points offered before this call are dropped, points offered after it are
+     * appended. Must be called from the feed thread.
+     */
+    public void setSnapshot(@NonNull float[] values, int count) {
+        pendingSnapshot.set(new Snapshot(values, count, offered));
+        requestRender();
+    }
+
+    /**
+     * Sets how many of the latest points are drawn. Older points are dropped.
+     */
+    public void setMaxPoints(final int maxPoints) {
+        if (maxPoints < 2) {
+            throw new IllegalArgumentException("maxPoints must be at least 2: " + maxPoints);
+        }
+
+        this.maxPoints = maxPoints;
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.setMaxPoints(maxPoints);
+            }
+        });
+    }
+
+    public void setSurfaceColor(@ColorInt final int color) {
+        surfaceColor = color;
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.surfaceColor = color;
+            }
+        });
+    }
+
+    public void setLineColor(@ColorInt final int color) {
+        lineColor = color;
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.linePaint.setColor(color);
+            }
+        });
+    }
+
+    public void setLineWidth(final float width) {
+        lineWidth = width;
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.lineWidth = width;
+                state.linePaint.setStrokeWidth(width);
+                state.scaleHelper = null;
+            }
+        });
+    }
+
+    public void setSmoothing(@LineChartView.Smoothing final int smoothing) {
+        this.smoothing = smoothing;
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.smoothing = smoothing;
+            }
+        });
+    }
+
+    public void setFillType(@LineChartView.FillType final int type) {
+        fillType = type;
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.fillType = type;
+            }
+        });
+    }
+
+    public void setFillGradientColors(@ColorInt int topColor, @ColorInt int bottomColor) {
+        final int top = ColorUtil.colorOpacity(topColor, 0.6f);
+        final int bottom = ColorUtil.colorOpacity(bottomColor, 0.6f);
+        topColorGradientFill = top;
+        bottomColorGradientFill = bottom;
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.topColorGradientFill = top;
+                state.bottomColorGradientFill = bottom;
+                state.updateFillShader();
+            }
+        });
+    }
+
+    public void setLastPointMarkerEnabled(final boolean enabled) {
+        lastPointMarkerEnabled = enabled;
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.lastPointMarkerEnabled = enabled;
+                state.updateContentRect();
+            }
+        });
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        // before super, so surface callbacks coming out of the attach find the new state
+        final RenderState newState = new RenderState(retiredState);
+        retiredState = null;
+        state = newState;
+        super.onAttachedToWindow();
+
+        // anything offered while detached is still queued
+        newState.requestRender();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // destroys the surface first, which waits for the render thread to let go of it
+        super.onDetachedFromWindow();
+
+        final RenderState oldState = state;
+        if (oldState == null) return;
+
+        // no waiting here, the next render thread takes the points over once this one is done
+        state = null;
+        oldState.thread.quitSafely();
+        retiredState = oldState;
+    }
+
+    @Override
+    public void surfaceCreated(@NonNull final SurfaceHolder holder) {
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.surfaceHolder = holder;
+            }
+        });
+    }
+
+    @Override
+    public void surfaceChanged(@NonNull SurfaceHolder holder, int format, final int width, final int height) {
+        runOnRenderThread(new StateChange() {
+            @Override
+            public void apply(@NonNull RenderState state) {
+                state.surfaceWidth = width;
+                state.surfaceHeight = height;
+                state.updateContentRect();
+                state.updateFillShader();
+            }
+        });
+    }
+
+    @Override
+    public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
+        final RenderState current = state;
+        if (current == null) return;
+
+        // the surface is gone once this returns, so the render thread must have dropped it
+        final CountDownLatch released = new CountDownLatch(1);
+        current.handler.postAtFrontOfQueue(new Runnable() {
+            @Override
+            public void run() {
+                current.surfaceHolder = null;
+                released.countDown();
+            }
+        });
+        try {
+            released.await(RELEASE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a style or surface change on the render thread and renders a frame with it. While
+     * detached there is nothing to change, the next render thread starts from the current style.
+     * UI thread only.
+     */
+    private void runOnRenderThread(@NonNull final StateChange change) {
+        final RenderState current = state;
+        if (current == null) return;
+
+        current.handler.post(new Runnable() {
+            @Override
+            public void run() {
+                change.apply(current);
+            }
+        });
+        current.requestRender();
+    }
+
+    /**
+     * Schedules a frame on the render thread, if one is running. Any thread.
+     */
+    private void requestRender() {
+        final RenderState current = state;
+        if (current != null) current.requestRender();
+    }
+
+    private interface StateChange {
+        void apply(@NonNull RenderState state);
+    }
+
+    /**
+     * A render thread and everything it draws with. Only touched on that thread once started,
+     * apart from the thread, handler and frame flag.
+     */
+    private final class RenderState {
+        final HandlerThread thread;
+        final Handler handler;
+        private final AtomicBoolean frameRequested = new AtomicBoolean();
+
+        private float[] values;
+        private float[] scratch;
+        // projected points of the current frame
+        private float[] projectedX;
+        private float[] projectedY;
+        private int start;
+        private int count;
+        // points drained from the queue so far, and the first one still wanted after a snapshot
+        private long drained;
+        private long skipUntil;
+
+        @Nullable
+        SurfaceHolder surfaceHolder;
+        int surfaceWidth;
+        int surfaceHeight;
+        private final RectF contentRect = new RectF();
+        private final RectF dataBounds = new RectF();
+        @Nullable
+        BaseChart.ScaleHelper scaleHelper;
+        private final Path linePath = new Path();
+        private final Path fillPath = new Path();
+
+        @ColorInt
+        int surfaceColor = LiveLineChartSurface.this.surfaceColor;
+        float lineWidth = LiveLineChartSurface.this.lineWidth;
+        @LineChartView.Smoothing
+        int smoothing = LiveLineChartSurface.this.smoothing;
+        @LineChartView.FillType
+        int fillType = LiveLineChartSurface.this.fillType;
+        @ColorInt
+        int topColorGradientFill = LiveLineChartSurface.this.topColorGradientFill;
+        @ColorInt
+        int bottomColorGradientFill = LiveLineChartSurface.this.bottomColorGradientFill;
+        boolean lastPointMarkerEnabled = LiveLineChartSurface.this.lastPointMarkerEnabled;
+        final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint lastPointMarkerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint lastPointMarkerRipplePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        /**
+         * Starts a render thread with the current style. UI thread only.
+         *
+         * @param previous state of the last render thread, whose points are taken over.
+         */
+        RenderState(@Nullable final RenderState previous) {
+            values = new float[maxPoints];
+            scratch = new float[maxPoints];
+            projectedX = new float[maxPoints];
+            projectedY = new float[maxPoints];
+
+            linePaint.setStyle(Paint.Style.STROKE);
+            linePaint.setColor(lineColor);
+            linePaint.setStrokeCap(Paint.Cap.ROUND);
+            linePaint.setStrokeJoin(Paint.Join.ROUND);
+            linePaint.setStrokeWidth(lineWidth);
+
+            fillPaint.setStyle(Paint.Style.FILL);
+            fillPaint.setColor(fillColor);
+
+            lastPointMarkerPaint.setStyle(Paint.Style.FILL);
+            lastPointMarkerPaint.setColor(lastPointMarkerColor);
+            lastPointMarkerRipplePaint.setStyle(Paint.Style.FILL);
+            lastPointMarkerRipplePaint.setColor(ColorUtil.colorOpacity(lastPointMarkerColor, 0.4f));
+
+            thread = new HandlerThread("LiveLineChartSurface", Process.THREAD_PRIORITY_DISPLAY);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+            if (previous != null) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        takeOver(previous);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Waits for the last render thread to finish and continues from its points. The queue has
+         * one consumer at a time, so nothing is drained before. This blocks the new render thread
+         * only, never the UI thread.
+         */
+        private void takeOver(@NonNull RenderState previous) {
+            try {
+                previous.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            final int kept = Math.min(previous.count, values.length);
+            previous.copyLatest(kept, values);
+            start = 0;
+            count = kept;
+            drained = previous.drained;
+            skipUntil = previous.skipUntil;
+        }
+
+        /**
+         * Schedules a frame on this thread's Choreographer, at most one at a time. Any thread.
+         */
+        void requestRender() {
+            if (frameRequested.compareAndSet(false, true)) {
+                handler.post(scheduleFrame);
+            }
+        }
+
+        private final Runnable scheduleFrame = new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(frameCallback);
+            }
+        };
+
+        private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                // changes from here on schedule the next frame
+                frameRequested.set(false);
+
+                final Snapshot snapshot = pendingSnapshot.getAndSet(null);
+                if (snapshot != null) applySnapshot(snapshot);
+                queue.drain(appender);
+
+                render();
+            }
+        };
+
+        private final SpscPointQueue.Consumer appender = new SpscPointQueue.Consumer() {
+            @Override
+            public void accept(long timestamp, float value) {
+                // offered before a snapshot that replaced them
+                if (drained++ < skipUntil) return;
+                append(value);
+            }
+        };
+
+        void setMaxPoints(int maxPoints) {
+            final float[] newValues = new float[maxPoints];
+            final int kept = Math.min(count, maxPoints);
+            copyLatest(kept, newValues);
+            values = newValues;
+            scratch = new float[maxPoints];
+            projectedX = new float[maxPoints];
+            projectedY = new float[maxPoints];
+            start = 0;
+            count = kept;
+        }
+
+        private void applySnapshot(@NonNull Snapshot snapshot) {
+            // points already drained past the snapshot were offered after it, keep them on top
+            final int newer = (int) Math.min(Math.max(drained - snapshot.offeredBefore, 0), count);
+            copyLatest(newer, scratch);
+
+            start = 0;
+            count = 0;
+            for (int i = Math.max(0, snapshot.count - values.length); i < snapshot.count; i++) {
+                append(snapshot.values[i]);
+            }
+            for (int i = 0; i < newer; i++) {
+                append(scratch[i]);
+            }
+            skipUntil = snapshot.offeredBefore;
+        }
+
+        private void append(float value) {
+            if (count < values.length) {
+                values[slot(count)] = value;
+                count++;
+            } else {
+                // full, overwrite the oldest point
+                values[start] = value;
+                start = start + 1 == values.length ? 0 : start + 1;
+            }
+        }
+
+        private int slot(int index) {
+            final int slot = start + index;
+            return slot < values.length ? slot : slot - values.length;
+        }
+
+        /**
+         * Copies the latest {@code n} points, oldest first.
+         */
+        private void copyLatest(int n, @NonNull float[] out) {
+            for (int i = 0; i < n; i++) {
+                out[i] = values[slot(count - n + i)];
+            }
+        }
+
+        private void render() {
+            final SurfaceHolder holder = surfaceHolder;
+            if (holder == null || surfaceWidth == 0 || surfaceHeight == 0) return;
+
+            final boolean hasLine = count >= 2;
+            if (hasLine) updatePaths();
+
+            final Canvas canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                    ? holder.lockHardwareCanvas()
+                    : holder.lockCanvas();
+            if (canvas == null) return;
+
+            try {
+                canvas.drawColor(surfaceColor, PorterDuff.Mode.SRC);
+                if (hasLine) {
+                    if (fillType != LineChartView.FillType.NONE) {
+                        canvas.drawPath(fillPath, fillPaint);
+                    }
+                    canvas.drawPath(linePath, linePaint);
+
+                    if (lastPointMarkerEnabled) {
+                        final float lastX = scaleHelper.getX(count - 1);
+                        final float lastY = scaleHelper.getY(values[slot(count - 1)]);
+                        canvas.drawCircle(lastX, lastY, 16f, lastPointMarkerRipplePaint);
+                        canvas.drawCircle(lastX, lastY, 8f, lastPointMarkerPaint);
+                    }
+                }
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+        }
+
+        private void updatePaths() {
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                final float value = values[slot(i)];
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+
+            // the scale only changes with the bounds, not with every tick
+            if (scaleHelper == null
+                    || dataBounds.top != min || dataBounds.bottom != max || dataBounds.right != count - 1) {
+                dataBounds.set(0, min, count - 1, max);
+                scaleHelper = new BaseChart.ScaleHelper(dataBounds, count, contentRect, lineWidth, true);
+            }
+
+            for (int i = 0; i < count; i++) {
+                projectedX[i] = scaleHelper.getX(i);
+                projectedY[i] = scaleHelper.getY(values[slot(i)]);
+            }
+            LineSmoothing.build(linePath, projectedX, projectedY, count, smoothing);
+
+            if (fillType != LineChartView.FillType.NONE) {
+                final float fillEdge = getFillEdge();
+                fillPath.set(linePath);
+                fillPath.lineTo(scaleHelper.getX(count - 1), fillEdge);
+                fillPath.lineTo(contentRect.left, fillEdge);
+                fillPath.close();
+            }
+        }
+
+        private float getFillEdge() {
+            final float bottom = surfaceHeight - getPaddingBottom();
+            switch (fillType) {
+                case LineChartView.FillType.UP:
+                    return getPaddingTop();
+                case LineChartView.FillType.TOWARD_ZERO:
+                    return Math.min(scaleHelper.getY(0F), bottom);
+                default:
+                    return bottom;
+            }
+        }
+
+        void updateContentRect() {
+            final float spacing = lastPointMarkerEnabled ? markerSpacing : 0;
+            contentRect.set(
+                    getPaddingStart(),
+                    getPaddingTop() + spacing,
+                    surfaceWidth - (getPaddingEnd() + spacing),
+                    surfaceHeight - getPaddingBottom()
+            );
+            scaleHelper = null;
+        }
+
+        void updateFillShader() {
+            if (surfaceHeight == 0) return;
+
+            fillPaint.setShader(new LinearGradient(
+                    0f,
+                    0f,
+                    0f,
+                    surfaceHeight,
+                    new int[]{topColorGradientFill, bottomColorGradientFill},
+                    new float[]{0f, 1f},
+                    Shader.TileMode.CLAMP
+            ));
+        }
+    }
+
+    private static final class Snapshot {
+        final float[] values;
+        final int count;
+        // points offered before the snapshot, which it replaces
+        final long offeredBefore;
+
+        Snapshot(float[] values, int count, long offeredBefore) {
+            this.values = values;
+            this.count = count;
+            this.offeredBefore = offeredBefore;
+        }
+    }
+}
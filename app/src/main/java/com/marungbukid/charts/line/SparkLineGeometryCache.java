@@ -0,0 +1,190 @@
+package com.marungbukid.charts.line;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+
+import com.marungbukid.charts.BaseChart;
+import com.marungbukid.charts.BaseChartAdapter;
+
+/**
+ * Process-wide cache of projected sparkline paths, keyed by series id, adapter, data version and
+ * size. Data versions only count per adapter, so a new adapter bound to a recycled row under an
+ * old series id never gets the path of the adapter before it.
+ * <p>
+ * Rebinding a recycled list row to a series it has shown before is a cache hit. Call
+ * {@link #prefetch} for rows about to be bound, e.g. from a RecyclerView prefetch or scroll
+ * listener, so their geometry is ready before they come on screen.
+ * <p>
+ * The cache is bounded by the points of the cached paths, not by their number, and caching a new
+ * version of a series drops the paths of its older versions, so a streaming row keeps one path
+ * per size. Safe to use from any thread.
+ */
+public final class SparkLineGeometryCache {
+    // about 16 MB of paths
+    private static final int DEFAULT_MAX_POINTS = 1 << 20;
+
+    private static final SparkLineGeometryCache INSTANCE = new SparkLineGeometryCache();
+
+    private final LruCache<Key, Path> cache = new LruCache<Key, Path>(DEFAULT_MAX_POINTS) {
+        @Override
+        protected int sizeOf(Key key, Path path) {
+            // an empty path still costs an entry
+            return Math.max(1, key.points);
+        }
+    };
+
+    private SparkLineGeometryCache() {
+    }
+
+    @NonNull
+    public static SparkLineGeometryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the cached path for the series, building and caching it on a miss. The returned
+     * path is shared and must not be modified.
+     */
+    @NonNull
+    public Path obtain(
+            @NonNull BaseChartAdapter adapter,
+            long seriesId,
+            int width,
+            int height,
+            float lineWidth
+    ) {
+        // the version and the points must come from the same data
+        final BaseChartAdapter data = adapter.pin();
+        final Key key = new Key(seriesId, adapter.getAdapterId(), data.getDataVersion(),
+                width, height, lineWidth);
+        Path path = cache.get(key);
+        if (path == null) {
+            path = buildPath(data, width, height, lineWidth);
+            key.points = data.getCount();
+            removeOlderVersions(key);
+            cache.put(key, path);
+        }
+        return path;
+    }
+
+    /**
+     * Drops the paths of other data versions of the key's series and adapter, which versions only
+     * move away from.
+     */
+    private void removeOlderVersions(@NonNull Key key) {
+        for (Map.Entry<Key, Path> entry : cache.snapshot().entrySet()) {
+            final Key other = entry.getKey();
+            if (other.seriesId == key.seriesId && other.adapterId == key.adapterId
+                    && other.dataVersion != key.dataVersion) {
+                cache.remove(other);
+            }
+        }
+    }
+
+    /**
+     * Computes the geometry of a series ahead of binding, if it is not cached yet.
+     */
+    public void prefetch(
+            @NonNull BaseChartAdapter adapter,
+            long seriesId,
+            int width,
+            int height,
+            float lineWidth
+    ) {
+        obtain(adapter, seriesId, width, height, lineWidth);
+    }
+
+    /**
+     * Sets how many points the cached paths may hold together.
+     */
+    public void setMaxPoints(int maxPoints) {
+        cache.resize(maxPoints);
+    }
+
+    /**
+     * @deprecated the cache is bounded by points now, see {@link #setMaxPoints(int)}.
+     */
+    @Deprecated
+    public void setMaxEntries(int maxEntries) {
+    }
+
+    public void evictAll() {
+        cache.evictAll();
+    }
+
+    /**
+     * Projects the adapter into a path spanning {@code [0, width] x [0, height]}.
+     */
+    @NonNull
+    static Path buildPath(@NonNull BaseChartAdapter adapter, int width, int height, float lineWidth) {
+        final BaseChartAdapter data = adapter.pin();
+        final Path path = new Path();
+        final int count = data.getCount();
+        if (count < 2 || width <= 0 || height <= 0) return path;
+
+        final BaseChart.ScaleHelper scaleHelper =
+                new BaseChart.ScaleHelper(data, new RectF(0, 0, width, height), lineWidth, false);
+
+        for (int i = 0; i < count; i++) {
+            final float x = scaleHelper.getX(data.getX(i));
+            final float y = scaleHelper.getY(data.getY(i));
+
+            if (i == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+
+        return path;
+    }
+
+    private static final class Key {
+        final long seriesId;
+        final long adapterId;
+        final int dataVersion;
+        final int width, height;
+        final float lineWidth;
+        // points of the cached path, set before it is cached, not part of the identity
+        int points;
+
+        Key(long seriesId, long adapterId, int dataVersion, int width, int height, float lineWidth) {
+            this.seriesId = seriesId;
+            this.adapterId = adapterId;
+            this.dataVersion = dataVersion;
+            this.width = width;
+            this.height = height;
+            this.lineWidth = lineWidth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key other = (Key) o;
+            return seriesId == other.seriesId
+                    && adapterId == other.adapterId
+                    && dataVersion == other.dataVersion
+                    && width == other.width
+                    && height == other.height
+                    && Float.compare(lineWidth, other.lineWidth) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (seriesId ^ (seriesId >>> 32));
+            result = 31 * result + (int) (adapterId ^ (adapterId >>> 32));
+            result = 31 * result + dataVersion;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + Float.floatToIntBits(lineWidth);
+            return result;
+        }
+    }
+}
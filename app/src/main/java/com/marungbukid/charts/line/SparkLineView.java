@@ -0,0 +1,188 @@
+package com.marungbukid.charts.line;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.database.DataSetObserver;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChartAdapter;
+import com.marungbukid.charts.R;
+
+/**
+ * A bare line chart for list rows: no axis, scrubbing, fill or markers.
+ * <p>
+ * When the adapter is set together with a series id, the projected path is shared through
+ * {@link SparkLineGeometryCache}, so rebinding a recycled row does not rebuild it.
+ */
+public class SparkLineView extends View {
+    /**
+     * Series id meaning the geometry is private to this view and never cached.
+     */
+    public static final long NO_SERIES_ID = Long.MIN_VALUE;
+
+    // styleable values
+    @ColorInt
+    private int lineColor;
+    private float lineWidth;
+
+    // misc fields
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    @Nullable
+    private BaseChartAdapter adapter;
+    private long seriesId = NO_SERIES_ID;
+    @Nullable
+    private Path geometry;
+
+    public SparkLineView(Context context) {
+        super(context);
+        init(context, null, R.attr.stockCharts_SparkLineViewStyle, R.style.stockCharts_Base_SparkLine);
+    }
+
+    public SparkLineView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs, R.attr.stockCharts_SparkLineViewStyle, R.style.stockCharts_Base_SparkLine);
+    }
+
+    public SparkLineView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context, attrs, defStyleAttr, R.style.stockCharts_Base_SparkLine);
+    }
+
+    public SparkLineView(Context context, @Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        init(context, attrs, defStyleAttr, defStyleRes);
+    }
+
+    private void init(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SparkLineView,
+                defStyleAttr, defStyleRes);
+
+        lineColor = a.getColor(R.styleable.SparkLineView_charts_lineColor, 0);
+        lineWidth = a.getDimension(R.styleable.SparkLineView_charts_lineWidth, 0);
+
+        a.recycle();
+
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setColor(lineColor);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
+        linePaint.setStrokeWidth(lineWidth);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateGeometry();
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        updateGeometry();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (geometry == null) return;
+
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        canvas.drawPath(geometry, linePaint);
+        canvas.restore();
+    }
+
+    /**
+     * Sets an adapter whose geometry is private to this view.
+     */
+    public void setAdapter(@Nullable BaseChartAdapter adapter) {
+        setAdapter(adapter, NO_SERIES_ID);
+    }
+
+    /**
+     * Sets an adapter identified by {@code seriesId}. Views showing the same adapter and series
+     * at the same size and data version share one path. Keep one adapter per series, e.g. in the
+     * row model, so rebinding a recycled row finds its path again.
+     */
+    public void setAdapter(@Nullable BaseChartAdapter adapter, long seriesId) {
+        if (this.adapter != null) {
+            this.adapter.unregisterDataSetObserver(dataSetObserver);
+        }
+        this.adapter = adapter;
+        this.seriesId = seriesId;
+        if (this.adapter != null) {
+            this.adapter.registerDataSetObserver(dataSetObserver);
+        }
+        updateGeometry();
+    }
+
+    @Nullable
+    public BaseChartAdapter getAdapter() {
+        return adapter;
+    }
+
+    public long getSeriesId() {
+        return seriesId;
+    }
+
+    @ColorInt
+    public int getLineColor() {
+        return lineColor;
+    }
+
+    public void setLineColor(@ColorInt int lineColor) {
+        this.lineColor = lineColor;
+        linePaint.setColor(lineColor);
+        invalidate();
+    }
+
+    public float getLineWidth() {
+        return lineWidth;
+    }
+
+    public void setLineWidth(float lineWidth) {
+        if (this.lineWidth != lineWidth) {
+            this.lineWidth = lineWidth;
+            linePaint.setStrokeWidth(lineWidth);
+            updateGeometry();
+        }
+    }
+
+    private void updateGeometry() {
+        final int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        final int height = getHeight() - getPaddingTop() - getPaddingBottom();
+
+        if (adapter == null || width <= 0 || height <= 0) {
+            geometry = null;
+        } else if (seriesId == NO_SERIES_ID) {
+            geometry = SparkLineGeometryCache.buildPath(adapter, width, height, lineWidth);
+        } else {
+            geometry = SparkLineGeometryCache.getInstance()
+                    .obtain(adapter, seriesId, width, height, lineWidth);
+        }
+
+        invalidate();
+    }
+
+    private final DataSetObserver dataSetObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            super.onChanged();
+            updateGeometry();
+        }
+
+        @Override
+        public void onInvalidated() {
+            super.onInvalidated();
+            geometry = null;
+            invalidate();
+        }
+    };
+}
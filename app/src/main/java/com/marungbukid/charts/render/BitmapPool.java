@@ -0,0 +1,107 @@
+package com.marungbukid.charts.render;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of mutable ARGB_8888 bitmaps, bucketed by allocation size in powers of two.
+ * <p>
+ * A request is served from its own bucket, reconfiguring a pooled bitmap to the requested size,
+ * so thumbnails of slightly different sizes share memory. Thread-safe.
+ */
+public final class BitmapPool {
+    private static final int BUCKETS = 32;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final ArrayDeque<Bitmap>[] buckets;
+    private final int maxPerBucket;
+
+    @SuppressWarnings("unchecked")
+    public BitmapPool(int maxPerBucket) {
+        this.maxPerBucket = maxPerBucket;
+        buckets = new ArrayDeque[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * @return a cleared bitmap of exactly the given size, pooled if possible.
+     */
+    @NonNull
+    public Bitmap acquire(int width, int height) {
+        final int bucket = ceilBucket((long) width * height * BYTES_PER_PIXEL);
+
+        Bitmap bitmap;
+        synchronized (this) {
+            bitmap = buckets[bucket].pollFirst();
+        }
+
+        if (bitmap == null) {
+            // allocate the full bucket size so the bitmap can later serve any request of its bucket
+            final long bucketBytes = 1L << bucket;
+            final int allocatedHeight = (int) Math.max(height,
+                    (bucketBytes + (long) width * BYTES_PER_PIXEL - 1) / ((long) width * BYTES_PER_PIXEL));
+            bitmap = Bitmap.createBitmap(width, allocatedHeight, Bitmap.Config.ARGB_8888);
+            if (allocatedHeight != height) {
+                bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            }
+            return bitmap;
+        }
+
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+        }
+        bitmap.eraseColor(0);
+        return bitmap;
+    }
+
+    /**
+     * Returns a bitmap to the pool. It must not be used by the caller afterwards.
+     */
+    public void release(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable()) return;
+
+        final int bucket = floorBucket(bitmap.getAllocationByteCount());
+        synchronized (this) {
+            if (buckets[bucket].size() < maxPerBucket) {
+                buckets[bucket].addLast(bitmap);
+                return;
+            }
+        }
+        bitmap.recycle();
+    }
+
+    /**
+     * Recycles every pooled bitmap.
+     */
+    public void clear() {
+        synchronized (this) {
+            for (ArrayDeque<Bitmap> bucket : buckets) {
+                for (Bitmap bitmap : bucket) {
+                    bitmap.recycle();
+                }
+                bucket.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the bucket of requests up to {@code 2^bucket} bytes that {@code bytes} falls in.
+     */
+    private static int ceilBucket(long bytes) {
+        final int bucket = 64 - Long.numberOfLeadingZeros(Math.max(bytes, 1) - 1);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    /**
+     * @return the largest bucket an allocation of {@code bytes} can serve every request of.
+     */
+    private static int floorBucket(long bytes) {
+        final int bucket = 63 - Long.numberOfLeadingZeros(Math.max(bytes, 1));
+        return Math.min(bucket, BUCKETS - 1);
+    }
+}
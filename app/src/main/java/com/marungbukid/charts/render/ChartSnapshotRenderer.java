@@ -0,0 +1,136 @@
+package com.marungbukid.charts.render;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import com.marungbukid.charts.BaseChartAdapter;
+import com.marungbukid.charts.line.LineChartView;
+
+/**
+ * Renders line charts into bitmaps off the UI thread, for widgets, share cards and notifications.
+ * <p>
+ * Snapshots are drawn by a real {@link LineChartView}, so they look exactly like the on-screen
+ * chart. One detached view per style is created lazily and reused for every snapshot on the
+ * renderer's own thread, and bitmaps come from a {@link BitmapPool}. Requests are served in
+ * order. The points are pinned when a snapshot is requested, read through if the adapter pins
+ * immutable data and copied otherwise, so the adapter may change while the snapshot renders.
+ */
+public final class ChartSnapshotRenderer {
+    private static final int DEFAULT_BITMAPS_PER_BUCKET = 4;
+
+    public interface Callback {
+        /**
+         * Called on the UI thread with the finished snapshot. Hand the bitmap back with
+         * {@link #release(Bitmap)} once it is no longer displayed.
+         */
+        void onSnapshot(@NonNull Bitmap bitmap);
+    }
+
+    private final Context context;
+    private final HandlerThread thread;
+    private final Handler renderHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final BitmapPool bitmapPool;
+
+    // render thread only
+    private final SparseArray<LineChartView> views = new SparseArray<>();
+    private final Canvas canvas = new Canvas();
+
+    public ChartSnapshotRenderer(@NonNull Context context) {
+        this(context, new BitmapPool(DEFAULT_BITMAPS_PER_BUCKET));
+    }
+
+    public ChartSnapshotRenderer(@NonNull Context context, @NonNull BitmapPool bitmapPool) {
+        this.context = context.getApplicationContext();
+        this.bitmapPool = bitmapPool;
+
+        thread = new HandlerThread("ChartSnapshotRenderer", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        renderHandler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Queues a snapshot of the adapter as it is now, drawn with the given line chart style
+     * resource. Call on the thread that changes the adapter, usually the UI thread.
+     */
+    public void render(
+            @NonNull BaseChartAdapter adapter,
+            final int width,
+            final int height,
+            final int styleRes,
+            @NonNull final Callback callback
+    ) {
+        final PinnedPoints points = PinnedPoints.of(adapter);
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = renderOnThread(points, width, height, styleRes);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onSnapshot(bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns a snapshot bitmap to the pool.
+     */
+    public void release(@NonNull Bitmap bitmap) {
+        bitmapPool.release(bitmap);
+    }
+
+    /**
+     * Stops the render thread once queued snapshots are done and frees the pooled bitmaps.
+     */
+    public void quit() {
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                views.clear();
+                bitmapPool.clear();
+            }
+        });
+        thread.quitSafely();
+    }
+
+    private Bitmap renderOnThread(BaseChartAdapter adapter, int width, int height, int styleRes) {
+        final LineChartView view = obtainView(styleRes);
+
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY)
+        );
+        view.layout(0, 0, width, height);
+        view.setAdapter(adapter);
+
+        final Bitmap bitmap = bitmapPool.acquire(width, height);
+        canvas.setBitmap(bitmap);
+        view.draw(canvas);
+        canvas.setBitmap(null);
+
+        // do not keep the points reachable from the cached view
+        view.setAdapter(null);
+        return bitmap;
+    }
+
+    private LineChartView obtainView(int styleRes) {
+        LineChartView view = views.get(styleRes);
+        if (view == null) {
+            view = new LineChartView(context, null, 0, styleRes);
+            views.put(styleRes, view);
+        }
+        return view;
+    }
+}
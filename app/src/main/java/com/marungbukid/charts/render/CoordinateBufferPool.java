@@ -0,0 +1,110 @@
+package com.marungbukid.charts.render;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * Process-wide pool of {@code float[]} coordinate buffers shared by all chart instances.
+ * <p>
+ * Buffers are handed out in power of two lengths, so a chart whose point count changes a little
+ * gets back the same buffer it released. The pool keeps at most {@link #getMaxPooledBytes()}
+ * worth of idle buffers and drops the rest to the garbage collector. Thread-safe.
+ */
+public final class CoordinateBufferPool {
+    private static final CoordinateBufferPool INSTANCE = new CoordinateBufferPool();
+
+    private static final int MIN_BUCKET = 6;
+    private static final int BUCKETS = 31;
+    private static final int BYTES_PER_FLOAT = 4;
+    private static final long DEFAULT_MAX_POOLED_BYTES = 4L * 1024 * 1024;
+
+    private final ArrayDeque<float[]>[] buckets;
+    private long maxPooledBytes = DEFAULT_MAX_POOLED_BYTES;
+    private long pooledBytes;
+
+    @SuppressWarnings("unchecked")
+    private CoordinateBufferPool() {
+        buckets = new ArrayDeque[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    @NonNull
+    public static CoordinateBufferPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return a buffer of at least {@code minLength} floats. Its contents are undefined.
+     */
+    @NonNull
+    public float[] acquire(int minLength) {
+        final int bucket = ceilBucket(minLength);
+        synchronized (this) {
+            final float[] buffer = buckets[bucket].pollFirst();
+            if (buffer != null) {
+                pooledBytes -= (long) buffer.length * BYTES_PER_FLOAT;
+                return buffer;
+            }
+        }
+        return new float[1 << bucket];
+    }
+
+    /**
+     * Returns a buffer to the pool. It must not be used by the caller afterwards.
+     */
+    public void release(@NonNull float[] buffer) {
+        if (buffer.length < 1 << MIN_BUCKET) return;
+
+        final long bytes = (long) buffer.length * BYTES_PER_FLOAT;
+        synchronized (this) {
+            if (pooledBytes + bytes > maxPooledBytes) return;
+
+            buckets[floorBucket(buffer.length)].addLast(buffer);
+            pooledBytes += bytes;
+        }
+    }
+
+    /**
+     * Sets how many bytes of idle buffers are kept, trimming the pool if it holds more.
+     */
+    public synchronized void setMaxPooledBytes(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        // drop the largest buffers first, they are the least likely to be reused
+        for (int i = BUCKETS - 1; i >= 0 && pooledBytes > maxPooledBytes; i--) {
+            while (pooledBytes > maxPooledBytes && !buckets[i].isEmpty()) {
+                pooledBytes -= (long) buckets[i].pollFirst().length * BYTES_PER_FLOAT;
+            }
+        }
+    }
+
+    public synchronized long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Drops every idle buffer.
+     */
+    public synchronized void clear() {
+        for (ArrayDeque<float[]> bucket : buckets) {
+            bucket.clear();
+        }
+        pooledBytes = 0;
+    }
+
+    private static int ceilBucket(int length) {
+        final int bucket = 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1);
+        return Math.min(Math.max(bucket, MIN_BUCKET), BUCKETS - 1);
+    }
+
+    private static int floorBucket(int length) {
+        final int bucket = 31 - Integer.numberOfLeadingZeros(length);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+}
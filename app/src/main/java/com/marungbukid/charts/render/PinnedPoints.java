@@ -0,0 +1,142 @@
+package com.marungbukid.charts.render;
+
+import android.graphics.RectF;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.BaseChartAdapter;
+import com.marungbukid.charts.BaseChartEntry;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The points of an adapter at one version, as an adapter of its own, so another thread can draw
+ * or bin them while the adapter keeps changing. Data the adapter already pins immutably, such as
+ * that of {@link com.marungbukid.charts.data.SnapshotChartAdapter} or
+ * {@link com.marungbukid.charts.data.ArrayChartAdapter}, is read through. Any other adapter is
+ * copied point by point on the calling thread, which costs O(n) per pin and is logged once per
+ * adapter class; large series should use one of those adapters instead. Entries of a copy are
+ * not kept, {@link #getItem(int)} then returns null.
+ */
+public final class PinnedPoints extends BaseChartAdapter<BaseChartEntry> {
+    private static final String TAG = "PinnedPoints";
+
+    // adapter classes already warned about being copied
+    private static final Set<Class<?>> copiedClasses = new HashSet<>();
+
+    // immutable data read through, null for a copy
+    @Nullable
+    private BaseChartAdapter pinned;
+    // copy buffers, kept across pins of a reused instance
+    @Nullable
+    private float[] x;
+    @Nullable
+    private float[] y;
+    private int count;
+    private int version;
+    private boolean hasBaseLine;
+    private float baseLine;
+
+    private PinnedPoints() {
+    }
+
+    /**
+     * Pins the adapter's current points. Call on the thread that changes the adapter.
+     */
+    @NonNull
+    public static PinnedPoints of(@NonNull BaseChartAdapter adapter) {
+        return of(adapter, null);
+    }
+
+    /**
+     * Pins the adapter's current points into {@code reuse}, if given, so a copy fills its buffers
+     * instead of allocating new ones. Nothing may read {@code reuse} any more. Call on the thread
+     * that changes the adapter.
+     *
+     * @return {@code reuse}, or a new instance if it was null.
+     */
+    @NonNull
+    public static PinnedPoints of(@NonNull BaseChartAdapter adapter, @Nullable PinnedPoints reuse) {
+        final PinnedPoints points = reuse != null ? reuse : new PinnedPoints();
+        points.set(adapter, adapter.pin());
+        return points;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void set(@NonNull BaseChartAdapter adapter, @NonNull BaseChartAdapter data) {
+        count = data.getCount();
+        version = data.getDataVersion();
+        hasBaseLine = data.hasBaseLine();
+        baseLine = data.getBaseLine();
+        setOnDataCharts(adapter.getOnDataCharts());
+
+        if (data != adapter) {
+            pinned = data;
+            return;
+        }
+
+        pinned = null;
+        warnCopy(adapter);
+        if (x == null || x.length < count) {
+            x = new float[count];
+            y = new float[count];
+        }
+        for (int i = 0; i < count; i++) {
+            x[i] = data.getX(i);
+            y[i] = data.getY(i);
+        }
+    }
+
+    private static void warnCopy(@NonNull BaseChartAdapter adapter) {
+        synchronized (copiedClasses) {
+            if (!copiedClasses.add(adapter.getClass())) return;
+        }
+        Log.w(TAG, adapter.getClass().getName() + " does not pin its data, its points are copied "
+                + "on every pin. Use SnapshotChartAdapter or ArrayChartAdapter for large series.");
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Nullable
+    @Override
+    public BaseChartEntry getItem(int index) {
+        return pinned != null ? (BaseChartEntry) pinned.getItem(index) : null;
+    }
+
+    @Override
+    public float getX(int index) {
+        return pinned != null ? pinned.getX(index) : x[index];
+    }
+
+    @Override
+    public float getY(int index) {
+        return pinned != null ? pinned.getY(index) : y[index];
+    }
+
+    @Override
+    public boolean hasBaseLine() {
+        return hasBaseLine;
+    }
+
+    @Override
+    public float getBaseLine() {
+        return baseLine;
+    }
+
+    @NonNull
+    @Override
+    public RectF getDataBounds() {
+        return pinned != null ? pinned.getDataBounds() : super.getDataBounds();
+    }
+
+    @Override
+    public int getDataVersion() {
+        return version;
+    }
+}
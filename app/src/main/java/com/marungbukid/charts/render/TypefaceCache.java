@@ -0,0 +1,175 @@
+package com.marungbukid.charts.render;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import androidx.annotation.FontRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.content.res.ResourcesCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Process-wide cache of font resources, loaded once per resource id on a background thread.
+ * <p>
+ * Charts ask for their font while they are constructed. The first chart with a font starts the
+ * load and draws with the default typeface until it arrives; every later chart gets the cached
+ * typeface straight away. Call {@link #preload} early, e.g. from {@code Application.onCreate},
+ * so no chart ever waits. Charts built off the UI thread, such as by
+ * {@link ChartSnapshotRenderer}, load with {@link #getBlocking} instead, since they draw before a
+ * callback could reach them. Safe to use from any thread, callbacks arrive on the UI thread.
+ */
+public final class TypefaceCache {
+    public interface Callback {
+        void onTypefaceLoaded(@FontRes int fontId, @NonNull Typeface typeface);
+    }
+
+    private static final TypefaceCache INSTANCE = new TypefaceCache();
+
+    private static volatile ExecutorService executor;
+
+    // guarded by this
+    private final SparseArray<Typeface> loaded = new SparseArray<>();
+    // callbacks of fonts being loaded, by font id, guarded by this
+    private final SparseArray<List<Callback>> pending = new SparseArray<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private TypefaceCache() {
+    }
+
+    @NonNull
+    public static TypefaceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the font if it is loaded already. Otherwise starts loading it, unless a load is
+     * running, and returns null; the callback then gets the font on the UI thread. A font that
+     * fails to load is cached as {@link Typeface#DEFAULT}. Pending callbacks are held strongly
+     * until the font arrives.
+     */
+    @Nullable
+    public Typeface get(@NonNull Context context, @FontRes int fontId, @Nullable Callback callback) {
+        synchronized (this) {
+            final Typeface typeface = loaded.get(fontId);
+            if (typeface != null) return typeface;
+
+            List<Callback> callbacks = pending.get(fontId);
+            final boolean start = callbacks == null;
+            if (start) {
+                callbacks = new ArrayList<>(2);
+                pending.put(fontId, callbacks);
+            }
+            if (callback != null) callbacks.add(callback);
+            if (!start) return null;
+        }
+
+        // the application context, so a load never holds on to an activity
+        final Context appContext = context.getApplicationContext() != null
+                ? context.getApplicationContext()
+                : context;
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                load(appContext, fontId);
+            }
+        });
+        return null;
+    }
+
+    /**
+     * @return the font, loaded on the calling thread if it is not cached yet. A font that fails
+     * to load is {@link Typeface#DEFAULT}.
+     */
+    @NonNull
+    @WorkerThread
+    public Typeface getBlocking(@NonNull Context context, @FontRes int fontId) {
+        synchronized (this) {
+            final Typeface typeface = loaded.get(fontId);
+            if (typeface != null) return typeface;
+        }
+
+        final Typeface result = loadFont(context, fontId);
+        synchronized (this) {
+            // a background load of the same font may have won, keep the first one
+            final Typeface typeface = loaded.get(fontId);
+            if (typeface != null) return typeface;
+            loaded.put(fontId, result);
+            return result;
+        }
+    }
+
+    /**
+     * Starts loading the font ahead of the first chart that uses it.
+     */
+    public void preload(@NonNull Context context, @FontRes int fontId) {
+        get(context, fontId, null);
+    }
+
+    private void load(Context context, final int fontId) {
+        final Typeface loadedFont = loadFont(context, fontId);
+
+        final Typeface result;
+        final List<Callback> callbacks;
+        synchronized (this) {
+            final Typeface known = loaded.get(fontId);
+            result = known != null ? known : loadedFont;
+            loaded.put(fontId, result);
+            callbacks = pending.get(fontId);
+            pending.remove(fontId);
+        }
+        if (callbacks == null || callbacks.isEmpty()) return;
+
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < callbacks.size(); i++) {
+                    callbacks.get(i).onTypefaceLoaded(fontId, result);
+                }
+            }
+        });
+    }
+
+    @NonNull
+    private static Typeface loadFont(Context context, int fontId) {
+        Typeface typeface = null;
+        try {
+            typeface = ResourcesCompat.getFont(context, fontId);
+        } catch (Resources.NotFoundException ignored) {
+            // falls back to the default below
+        }
+        return typeface != null ? typeface : Typeface.DEFAULT;
+    }
+
+    @NonNull
+    private static ExecutorService getExecutor() {
+        ExecutorService result = executor;
+        if (result == null) {
+            synchronized (TypefaceCache.class) {
+                result = executor;
+                if (result == null) {
+                    result = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "TypefaceCache");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    executor = result;
+                }
+            }
+        }
+        return result;
+    }
+}
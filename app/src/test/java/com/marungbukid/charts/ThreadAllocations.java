@@ -0,0 +1,50 @@
+package com.marungbukid.charts;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes allocated on the Java heap by the calling thread, from the JVM's per-thread allocation
+ * counter. Native allocations, such as Skia paths under Robolectric's native graphics, are not
+ * counted.
+ */
+public final class ThreadAllocations {
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // what reading the counter allocates by itself, taken off every measurement
+    private static final long overhead;
+
+    static {
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            final long before = read();
+            least = Math.min(least, read() - before);
+        }
+        overhead = least;
+    }
+
+    private ThreadAllocations() {
+    }
+
+    /**
+     * @return the bytes the calling thread allocated so far.
+     */
+    public static long allocatedBytes() {
+        return read();
+    }
+
+    /**
+     * @return the bytes {@code action} allocates when run {@code times} times in a row.
+     */
+    public static long measure(int times, Runnable action) {
+        final long before = read();
+        for (int i = 0; i < times; i++) {
+            action.run();
+        }
+        return Math.max(0, read() - before - overhead);
+    }
+
+    private static long read() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,231 @@
+package com.marungbukid.charts.data;
+
+import android.graphics.RectF;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Structural sharing of {@link SeriesSnapshot}: a snapshot published by
+ * {@link SnapshotChartAdapter} must read the same points, bounds and change history however the
+ * adapter changes afterwards, including changes that reuse its chunks or cross a chunk boundary.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class SeriesSnapshotTest {
+    // points per chunk of SeriesSnapshot
+    private static final int CHUNK = 1024;
+    // versions back that getUnchangedCount answers for
+    private static final int HISTORY = 16;
+
+    private final SnapshotChartAdapter adapter = new SnapshotChartAdapter();
+    private final List<Recorded> recorded = new ArrayList<>();
+
+    @Test
+    public void appendKeepsOlderSnapshots() {
+        adapter.setValues(xs(0, CHUNK - 4), ys(0, CHUNK - 4), CHUNK - 4);
+        record(true);
+
+        // crosses into the second chunk, growing the chunk table
+        adapter.append(xs(CHUNK - 4, 10), spikes(10, 500f), 0, 10);
+        record(true);
+
+        // writes into the chunk the previous snapshot shares, past its end
+        adapter.append(CHUNK + 6, -700f);
+        record(false);
+        adapter.append(xs(CHUNK + 7, 3), spikes(3, 900f), 0, 3);
+
+        verifyAll();
+        assertEquals(CHUNK + 10, adapter.getSnapshot().getCount());
+    }
+
+    @Test
+    public void setLastYKeepsOlderSnapshots() {
+        adapter.setValues(xs(0, CHUNK + 5), ys(0, CHUNK + 5), CHUNK + 5);
+        record(true);
+
+        adapter.setLastY(1_000f);
+        record(true);
+
+        adapter.setLastY(-1_000f);
+        record(false);
+
+        // the last point moves into a chunk of its own, then is updated again
+        adapter.append(CHUNK + 5, 3f);
+        adapter.setLastY(2_000f);
+
+        verifyAll();
+        assertEquals(2_000f, adapter.getSnapshot().getY(CHUNK + 5), 0f);
+        assertEquals(-1_000f, adapter.getSnapshot().getY(CHUNK + 4), 0f);
+    }
+
+    @Test
+    public void removeFirstKeepsOlderSnapshots() {
+        adapter.setValues(xs(0, 2 * CHUNK + 10), ys(0, 2 * CHUNK + 10), 2 * CHUNK + 10);
+        record(true);
+
+        // drops the first chunk from the table
+        adapter.removeFirst(CHUNK + 3);
+        record(false);
+
+        // the remaining chunks are shared with the first snapshot, appends go past its end
+        adapter.append(xs(2 * CHUNK + 10, 20), spikes(20, 800f), 0, 20);
+        record(true);
+
+        // within the first chunk, only the offset moves
+        adapter.removeFirst(5);
+        record(false);
+        adapter.setLastY(-900f);
+        adapter.removeFirst(adapter.getCount());
+
+        verifyAll();
+        assertEquals(0, adapter.getSnapshot().getCount());
+    }
+
+    @Test
+    public void unchangedCountsFollowTheChanges() {
+        adapter.setValues(xs(0, CHUNK - 1), ys(0, CHUNK - 1), CHUNK - 1);
+        final SeriesSnapshot values = adapter.getSnapshot();
+        adapter.append(xs(CHUNK - 1, 2), ys(CHUNK - 1, 2), 0, 2);
+        final SeriesSnapshot appended = adapter.getSnapshot();
+        adapter.setLastY(7f);
+        final SeriesSnapshot updated = adapter.getSnapshot();
+        adapter.removeFirst(1);
+        final SeriesSnapshot removed = adapter.getSnapshot();
+
+        final int version = values.getDataVersion();
+        assertEquals(CHUNK - 1, appended.getUnchangedCount(version));
+        assertEquals(CHUNK, updated.getUnchangedCount(version + 1));
+        assertEquals(CHUNK - 1, updated.getUnchangedCount(version));
+        assertEquals(0, removed.getUnchangedCount(version + 2));
+        assertEquals(0, removed.getUnchangedCount(version));
+
+        // a snapshot answers for itself and never for versions newer than it or too far back
+        assertEquals(CHUNK + 1, updated.getUnchangedCount(version + 2));
+        assertEquals(-1, updated.getUnchangedCount(version + 3));
+        assertEquals(-1, values.getUnchangedCount(version - HISTORY - 1));
+    }
+
+    @Test
+    public void historyIsBoundedButOlderAnswersStay() {
+        adapter.setValues(xs(0, 10), ys(0, 10), 10);
+        for (int i = 0; i < HISTORY + 4; i++) {
+            record(false);
+            adapter.append(10 + i, i);
+        }
+
+        verifyAll();
+        final SeriesSnapshot newest = adapter.getSnapshot();
+        final int oldest = recorded.get(0).snapshot.getDataVersion();
+        assertEquals(-1, newest.getUnchangedCount(oldest));
+        assertEquals(10 + 4, newest.getUnchangedCount(newest.getDataVersion() - HISTORY));
+    }
+
+    /**
+     * Captures the current snapshot with its values as they are now.
+     *
+     * @param readBounds read the bounds now, so they are cached before newer changes rather
+     *                   than computed after them.
+     */
+    private void record(boolean readBounds) {
+        final SeriesSnapshot snapshot = adapter.getSnapshot();
+        if (readBounds) snapshot.getDataBounds();
+        recorded.add(new Recorded(snapshot));
+    }
+
+    private void verifyAll() {
+        for (int i = 0; i < recorded.size(); i++) {
+            recorded.get(i).verify("snapshot " + i);
+        }
+    }
+
+    private static float[] xs(int from, int count) {
+        final float[] result = new float[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = from + i;
+        }
+        return result;
+    }
+
+    private static float[] ys(int from, int count) {
+        final float[] result = new float[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = ((from + i) * 37 % 101) - 50;
+        }
+        return result;
+    }
+
+    /**
+     * @return values far outside {@link #ys}, so bounds leaking between snapshots show.
+     */
+    private static float[] spikes(int count, float value) {
+        final float[] result = new float[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = i % 2 == 0 ? value : -value;
+        }
+        return result;
+    }
+
+    private static final class Recorded {
+        final SeriesSnapshot snapshot;
+        final int version;
+        final float[] x;
+        final float[] y;
+        // getUnchangedCount for the versions from this one back past the history
+        final int[] unchanged = new int[HISTORY + 2];
+
+        Recorded(SeriesSnapshot snapshot) {
+            this.snapshot = snapshot;
+            version = snapshot.getDataVersion();
+            final int count = snapshot.getCount();
+            x = new float[count];
+            y = new float[count];
+            for (int i = 0; i < count; i++) {
+                x[i] = snapshot.getX(i);
+                y[i] = snapshot.getY(i);
+            }
+            for (int back = 0; back < unchanged.length; back++) {
+                unchanged[back] = snapshot.getUnchangedCount(version - back);
+            }
+        }
+
+        void verify(String name) {
+            assertEquals(name + " version", version, snapshot.getDataVersion());
+            assertEquals(name + " count", x.length, snapshot.getCount());
+            for (int i = 0; i < x.length; i++) {
+                if (snapshot.getX(i) != x[i] || snapshot.getY(i) != y[i]) {
+                    throw new AssertionError(name + " point " + i + " changed from (" + x[i] + ", "
+                            + y[i] + ") to (" + snapshot.getX(i) + ", " + snapshot.getY(i) + ")");
+                }
+            }
+            for (int back = 0; back < unchanged.length; back++) {
+                assertEquals(name + " unchanged since " + back + " versions back",
+                        unchanged[back], snapshot.getUnchangedCount(version - back));
+            }
+
+            if (x.length == 0) return;
+            float minX = Float.MAX_VALUE;
+            float minY = Float.MAX_VALUE;
+            float maxX = -Float.MAX_VALUE;
+            float maxY = -Float.MAX_VALUE;
+            for (int i = 0; i < x.length; i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+            final RectF bounds = snapshot.getDataBounds();
+            assertEquals(name + " left", minX, bounds.left, 0f);
+            assertEquals(name + " top", minY, bounds.top, 0f);
+            assertEquals(name + " right", maxX, bounds.right, 0f);
+            assertEquals(name + " bottom", maxY, bounds.bottom, 0f);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.marungbukid.charts.data;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Ordering and overflow behaviour of {@link SpscPointQueue}, including a producer and a consumer
+ * on separate threads.
+ */
+public class SpscPointQueueTest {
+    private static final int THREADED_POINTS = 200_000;
+    private static final long TIMEOUT_MS = 30_000;
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(1, new SpscPointQueue(1, SpscPointQueue.OverflowPolicy.REJECT).capacity());
+        assertEquals(8, new SpscPointQueue(5, SpscPointQueue.OverflowPolicy.REJECT).capacity());
+        assertEquals(8, new SpscPointQueue(8, SpscPointQueue.OverflowPolicy.REJECT).capacity());
+    }
+
+    @Test
+    public void wrapsAroundInOrder() {
+        final SpscPointQueue queue = new SpscPointQueue(4, SpscPointQueue.OverflowPolicy.REJECT);
+        final Recorder recorder = new Recorder(64);
+
+        long next = 0;
+        // three points per round never line up with the four slots, so every slot gets reused
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++, next++) {
+                assertTrue(queue.offer(next, next * 0.5f));
+            }
+            assertEquals(3, queue.drain(recorder));
+            assertTrue(queue.isEmpty());
+        }
+
+        assertEquals(30, recorder.count);
+        for (int i = 0; i < recorder.count; i++) {
+            assertEquals(i, recorder.timestamps[i]);
+            assertEquals(i * 0.5f, recorder.values[i], 0f);
+        }
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void rejectDropsPointsWhileFull() {
+        final SpscPointQueue queue = new SpscPointQueue(4, SpscPointQueue.OverflowPolicy.REJECT);
+        final Recorder recorder = new Recorder(16);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i, i));
+        }
+        assertFalse(queue.offer(4, 4));
+        assertFalse(queue.offer(5, 5));
+        assertEquals(2, queue.getDroppedCount());
+
+        assertEquals(4, queue.drain(recorder));
+        assertTrue(queue.offer(6, 6));
+        assertEquals(1, queue.drain(recorder));
+
+        assertEquals(5, recorder.count);
+        final long[] expected = {0, 1, 2, 3, 6};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], recorder.timestamps[i]);
+        }
+    }
+
+    @Test
+    public void conflateKeepsLatestPointWhileFull() {
+        final SpscPointQueue queue = new SpscPointQueue(4, SpscPointQueue.OverflowPolicy.CONFLATE);
+        final Recorder recorder = new Recorder(16);
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(queue.offer(i, i));
+        }
+        // 4 and 5 were replaced in the overflow slot by 6
+        assertEquals(2, queue.getDroppedCount());
+        assertFalse(queue.isEmpty());
+
+        assertEquals(5, queue.drain(recorder));
+        assertTrue(queue.isEmpty());
+
+        // once drained, points go through the ring again
+        assertTrue(queue.offer(7, 7));
+        assertEquals(1, queue.drain(recorder));
+
+        final long[] expected = {0, 1, 2, 3, 6, 7};
+        assertEquals(expected.length, recorder.count);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], recorder.timestamps[i]);
+            assertEquals(expected[i], recorder.values[i], 0f);
+        }
+        assertEquals(2, queue.getDroppedCount());
+    }
+
+    @Test
+    public void rejectAcrossThreadsLosesNothing() throws InterruptedException {
+        final SpscPointQueue queue = new SpscPointQueue(64, SpscPointQueue.OverflowPolicy.REJECT);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        final Thread producer = new Thread(() -> {
+            for (int i = 0; i < THREADED_POINTS; i++) {
+                // the caller owns backpressure under REJECT, so retry until there is room
+                while (!queue.offer(i, i)) {
+                    Thread.yield();
+                }
+            }
+        });
+
+        final Recorder recorder = new Recorder(THREADED_POINTS);
+        final Thread consumer = new Thread(() -> {
+            try {
+                final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+                while (recorder.count < THREADED_POINTS && System.currentTimeMillis() < deadline) {
+                    if (queue.drain(recorder) == 0) Thread.yield();
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+
+        runBoth(producer, consumer, failure);
+
+        assertEquals(THREADED_POINTS, recorder.count);
+        for (int i = 0; i < THREADED_POINTS; i++) {
+            if (recorder.timestamps[i] != i || recorder.values[i] != i) {
+                fail("point " + i + " was " + recorder.timestamps[i] + "/" + recorder.values[i]);
+            }
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void conflateAcrossThreadsKeepsOrderAndLatestPoint() throws InterruptedException {
+        final SpscPointQueue queue = new SpscPointQueue(16, SpscPointQueue.OverflowPolicy.CONFLATE);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicBoolean produced = new AtomicBoolean();
+
+        final Thread producer = new Thread(() -> {
+            for (int i = 0; i < THREADED_POINTS; i++) {
+                if (!queue.offer(i, i)) failure.compareAndSet(null, new AssertionError("rejected " + i));
+            }
+            produced.set(true);
+        });
+
+        final Recorder recorder = new Recorder(THREADED_POINTS);
+        final Thread consumer = new Thread(() -> {
+            try {
+                final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+                while (System.currentTimeMillis() < deadline) {
+                    final boolean done = produced.get();
+                    queue.drain(recorder);
+                    // the producer had finished before this drain, so the drain saw every point
+                    if (done && queue.isEmpty()) break;
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+
+        runBoth(producer, consumer, failure);
+
+        assertTrue(recorder.count > 0);
+        for (int i = 1; i < recorder.count; i++) {
+            if (recorder.timestamps[i] <= recorder.timestamps[i - 1]) {
+                fail("point " + i + " out of order: " + recorder.timestamps[i - 1] + " then "
+                        + recorder.timestamps[i]);
+            }
+        }
+        for (int i = 0; i < recorder.count; i++) {
+            assertEquals(recorder.timestamps[i], recorder.values[i], 0f);
+        }
+        // the newest point always survives conflation
+        assertEquals(THREADED_POINTS - 1, recorder.timestamps[recorder.count - 1]);
+        // every point is either delivered or counted as dropped
+        assertTrue(recorder.count + queue.getDroppedCount() >= THREADED_POINTS);
+    }
+
+    private static void runBoth(Thread producer, Thread consumer, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        consumer.start();
+        producer.start();
+        producer.join(TIMEOUT_MS);
+        consumer.join(TIMEOUT_MS);
+        assertFalse("producer did not finish", producer.isAlive());
+        assertFalse("consumer did not finish", consumer.isAlive());
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    private static final class Recorder implements SpscPointQueue.Consumer {
+        final long[] timestamps;
+        final float[] values;
+        // written by the consumer thread only, read after it is joined
+        int count;
+
+        Recorder(int capacity) {
+            timestamps = new long[capacity];
+            values = new float[capacity];
+        }
+
+        @Override
+        public void accept(long timestamp, float value) {
+            timestamps[count] = timestamp;
+            values[count] = value;
+            count++;
+        }
+    }
+}
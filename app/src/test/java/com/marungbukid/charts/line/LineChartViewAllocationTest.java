@@ -0,0 +1,235 @@
+package com.marungbukid.charts.line;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.widget.FrameLayout;
+
+import com.marungbukid.charts.BaseChart;
+import com.marungbukid.charts.OnDataCharts;
+import com.marungbukid.charts.R;
+import com.marungbukid.charts.ThreadAllocations;
+import com.marungbukid.charts.data.ArrayChartAdapter;
+import com.marungbukid.charts.data.ChartPoint;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Allocation budgets of the draw, scrub and populate paths of {@link LineChartView}. Steady state
+ * frames and scrub events must not allocate at all, and rebuilding the geometry must not
+ * allocate per point. Graphics run natively, so paths and canvases cost no Java heap and what is
+ * counted is the chart's own code.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class LineChartViewAllocationTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 600;
+    private static final int POINTS = 1_000;
+    private static final int WARMUP = 50;
+    private static final int EVENTS = 500;
+
+    private Activity activity;
+    private Bitmap bitmap;
+    private Canvas canvas;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).setup().get();
+        bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(bitmap);
+    }
+
+    @After
+    public void tearDown() {
+        bitmap.recycle();
+    }
+
+    @Test
+    public void drawDoesNotAllocate() {
+        assertFramesDoNotAllocate(attach(plainStyle()));
+    }
+
+    @Test
+    public void drawWithEveryFeatureDoesNotAllocate() {
+        assertFramesDoNotAllocate(attach(fullStyle()));
+    }
+
+    @Test
+    public void scrubDoesNotAllocate() {
+        final LineChartView view = attach(fullStyle());
+        view.setScrubIndexListener(new BaseChart.OnScrubIndexListener() {
+            @Override
+            public void onScrubbed(int index, float x, float y) {
+            }
+
+            @Override
+            public void onScrubEnded() {
+            }
+        });
+
+        final Runnable scrub = new Runnable() {
+            private int event;
+
+            @Override
+            public void run() {
+                view.onScrubbed(WIDTH * ((event++ % 97) + 0.5f) / 97, HEIGHT / 2f);
+                view.onDraw(canvas);
+            }
+        };
+        ThreadAllocations.measure(WARMUP, scrub);
+        assertAllocationFree("scrub event", EVENTS, ThreadAllocations.measure(EVENTS, scrub));
+
+        final Runnable gesture = new Runnable() {
+            @Override
+            public void run() {
+                scrub.run();
+                view.onScrubEnded();
+                view.onDraw(canvas);
+            }
+        };
+        ThreadAllocations.measure(WARMUP, gesture);
+        assertAllocationFree("scrub gesture", EVENTS, ThreadAllocations.measure(EVENTS, gesture));
+    }
+
+    @Test
+    public void populatingUnchangedDataDoesNotAllocate() {
+        final LineChartView view = attach(fullStyle());
+        final Runnable populate = new Runnable() {
+            @Override
+            public void run() {
+                view.populatePath();
+            }
+        };
+
+        ThreadAllocations.measure(WARMUP, populate);
+        assertAllocationFree("populatePath", EVENTS, ThreadAllocations.measure(EVENTS, populate));
+    }
+
+    @Test
+    public void rebuildDoesNotAllocatePerPoint() {
+        final long small = measureRebuild(10_000);
+        final long large = measureRebuild(100_000);
+
+        // the large series has 90k more points, a single float per point would be 360 KB
+        assertTrue("a rebuild of 100k points allocated " + large + " bytes, of 10k points "
+                + small + " bytes", large - small < 64 * 1024);
+    }
+
+    /**
+     * @return the bytes of the last of a few rebuilds of a series of {@code points} points, once
+     * the coordinate buffers of the first ones are pooled.
+     */
+    private long measureRebuild(int points) {
+        final ArrayChartAdapter adapter = newAdapter(randomWalk(points, 0));
+        final LineChartView view = attach(fullStyle());
+        view.setAdapter(adapter);
+
+        final float[][] series = new float[4][];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = randomWalk(points, i + 1);
+        }
+
+        long bytes = 0;
+        for (int i = 0; i < series.length; i++) {
+            final float[] values = series[i];
+            bytes = ThreadAllocations.measure(1, new Runnable() {
+                @Override
+                public void run() {
+                    adapter.setValues(values, null);
+                    view.onDraw(canvas);
+                }
+            });
+        }
+        view.setAdapter(null);
+        return bytes;
+    }
+
+    private void assertFramesDoNotAllocate(final LineChartView view) {
+        final Runnable frame = new Runnable() {
+            @Override
+            public void run() {
+                view.onDraw(canvas);
+            }
+        };
+
+        ThreadAllocations.measure(WARMUP, frame);
+        assertAllocationFree("frame", EVENTS, ThreadAllocations.measure(EVENTS, frame));
+    }
+
+    /**
+     * Fails if the events allocated a byte or more each on average. One-off allocations in the
+     * measured run, such as a lazily grown JDK table, stay under the budget.
+     */
+    private static void assertAllocationFree(String event, int events, long bytes) {
+        if (bytes >= events) {
+            fail(events + " calls of " + event + " allocated " + bytes + " bytes, "
+                    + bytes / events + " per call");
+        }
+    }
+
+    private LineChartView attach(AttributeSet attrs) {
+        final LineChartView view = new LineChartView(activity, attrs);
+        activity.setContentView(view, new FrameLayout.LayoutParams(WIDTH, HEIGHT));
+        shadowOf(Looper.getMainLooper()).idle();
+
+        view.setAdapter(newAdapter(randomWalk(POINTS, 0)));
+        view.onDraw(canvas);
+        return view;
+    }
+
+    private static ArrayChartAdapter newAdapter(float[] values) {
+        final ArrayChartAdapter adapter = new ArrayChartAdapter(values);
+        // the price axis is only drawn for adapters with date points
+        adapter.setOnDataCharts(new OnDataCharts<ChartPoint>() {
+            @Override
+            public List<ChartPoint> getDatePoints() {
+                return Collections.emptyList();
+            }
+        });
+        return adapter;
+    }
+
+    private AttributeSet plainStyle() {
+        return Robolectric.buildAttributeSet().build();
+    }
+
+    private AttributeSet fullStyle() {
+        return Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.charts_scrubEnabled, "true")
+                .addAttribute(R.attr.charts_lastPointMarkerEnabled, "true")
+                .addAttribute(R.attr.charts_hasPriceAxis, "true")
+                .addAttribute(R.attr.charts_priceAxisTextSize, "12sp")
+                .addAttribute(R.attr.charts_fillType, "down")
+                .build();
+    }
+
+    private static float[] randomWalk(int size, long seed) {
+        final Random random = new Random(seed);
+        final float[] values = new float[size];
+        float value = 100;
+        for (int i = 0; i < size; i++) {
+            value += (float) random.nextGaussian();
+            values[i] = value;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,285 @@
+package com.marungbukid.charts.render;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.marungbukid.charts.ThreadAllocations;
+import com.marungbukid.charts.data.ArrayChartAdapter;
+import com.marungbukid.charts.line.LineChartView;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Repeatable render-cycle benchmark for {@link LineChartView}.
+ * <p>
+ * Every combination of style, fill type and dataset size goes through the cycle a real screen
+ * does: {@code setAdapter} (which populates the path), a full draw, then a run of scrub events,
+ * each followed by a draw. Styles are attribute sets deciding the attribute-only options such as
+ * the last point marker, scrubbing and the price axis. Datasets are seeded random walks, so runs
+ * compare across versions. Allocations are counted with {@link ThreadAllocations}.
+ */
+final class RenderBenchmark {
+    static final int[] DEFAULT_SIZES = {100, 1_000, 10_000, 100_000, 1_000_000};
+    static final int DEFAULT_SCRUB_EVENTS = 100;
+
+    private final Context context;
+    private final List<String> styleNames = new ArrayList<>();
+    private final List<AttributeSet> styles = new ArrayList<>();
+    private int[] fillTypes = {
+            LineChartView.FillType.NONE,
+            LineChartView.FillType.DOWN,
+            LineChartView.FillType.TOWARD_ZERO,
+    };
+    private int[] sizes = DEFAULT_SIZES;
+    private int width = 1080;
+    private int height = 600;
+    private int scrubEvents = DEFAULT_SCRUB_EVENTS;
+    private int warmupIterations = 2;
+    private int iterations = 5;
+    private long seed = 42;
+
+    RenderBenchmark(@NonNull Context context) {
+        this.context = context;
+    }
+
+    void addStyle(@NonNull String name, @NonNull AttributeSet attrs) {
+        styleNames.add(name);
+        styles.add(attrs);
+    }
+
+    void setFillTypes(@LineChartView.FillType int... fillTypes) {
+        this.fillTypes = fillTypes;
+    }
+
+    void setSizes(int... sizes) {
+        this.sizes = sizes;
+    }
+
+    void setViewSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    void setScrubEvents(int scrubEvents) {
+        this.scrubEvents = scrubEvents;
+    }
+
+    void setIterations(int warmupIterations, int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        }
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+    }
+
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Runs every combination and returns one result per combination, with the median of the
+     * measured iterations.
+     */
+    @NonNull
+    List<Result> run() {
+        final List<Result> results = new ArrayList<>();
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+
+        try {
+            for (int size : sizes) {
+                final float[] values = randomWalk(size, seed);
+                for (int style = 0; style < styles.size(); style++) {
+                    final LineChartView view = createView(styles.get(style));
+                    for (int fillType : fillTypes) {
+                        view.setFillType(fillType);
+                        results.add(measure(view, canvas, values, styleNames.get(style), fillType));
+                    }
+                    view.setAdapter(null);
+                }
+            }
+        } finally {
+            bitmap.recycle();
+        }
+        return results;
+    }
+
+    /**
+     * Measures constructing, measuring and laying out {@code views} charts of every style, as a
+     * list inflating its rows does.
+     *
+     * @return the median nanoseconds of each style, in the order the styles were added.
+     */
+    @NonNull
+    long[] runInflation(int views) {
+        final long[] results = new long[styles.size()];
+        final long[] nanos = new long[iterations];
+        for (int s = 0; s < styles.size(); s++) {
+            for (int i = -warmupIterations; i < iterations; i++) {
+                final long start = System.nanoTime();
+                for (int view = 0; view < views; view++) {
+                    createView(styles.get(s));
+                }
+                if (i >= 0) nanos[i] = System.nanoTime() - start;
+            }
+            results[s] = median(nanos);
+        }
+        return results;
+    }
+
+    @NonNull
+    List<String> getStyleNames() {
+        return styleNames;
+    }
+
+    private Result measure(LineChartView view, Canvas canvas, float[] values, String style, int fillType) {
+        final long[] setAdapterNanos = new long[iterations];
+        final long[] drawNanos = new long[iterations];
+        final long[] scrubNanos = new long[iterations];
+        final long[] allocatedBytes = new long[iterations];
+
+        for (int i = -warmupIterations; i < iterations; i++) {
+            // a new adapter every time, so geometry is never served from the cache
+            final ArrayChartAdapter adapter = new ArrayChartAdapter(values);
+            view.setAdapter(null);
+
+            final long allocationsBefore = ThreadAllocations.allocatedBytes();
+            final long start = System.nanoTime();
+            view.setAdapter(adapter);
+            final long populated = System.nanoTime();
+            view.draw(canvas);
+            final long drawn = System.nanoTime();
+            for (int event = 0; event < scrubEvents; event++) {
+                view.onScrubbed(width * (event + 0.5f) / scrubEvents, height / 2f);
+                view.draw(canvas);
+            }
+            view.onScrubEnded();
+            final long scrubbed = System.nanoTime();
+            final long allocationsAfter = ThreadAllocations.allocatedBytes();
+
+            if (i >= 0) {
+                setAdapterNanos[i] = populated - start;
+                drawNanos[i] = drawn - populated;
+                scrubNanos[i] = scrubbed - drawn;
+                allocatedBytes[i] = allocationsAfter - allocationsBefore;
+            }
+        }
+
+        return new Result(
+                style,
+                fillType,
+                values.length,
+                median(setAdapterNanos),
+                median(drawNanos),
+                median(scrubNanos),
+                median(allocatedBytes)
+        );
+    }
+
+    private LineChartView createView(AttributeSet attrs) {
+        final LineChartView view = new LineChartView(context, attrs);
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY)
+        );
+        view.layout(0, 0, width, height);
+        return view;
+    }
+
+    private static float[] randomWalk(int size, long seed) {
+        final Random random = new Random(seed);
+        final float[] values = new float[size];
+        float value = 100;
+        for (int i = 0; i < size; i++) {
+            value += (float) random.nextGaussian();
+            values[i] = value;
+        }
+        return values;
+    }
+
+    private static long median(long[] samples) {
+        final long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Writes results and inflation times as a JSON document tagged with {@code label}, for
+     * example the library version, so reports of different versions can be diffed.
+     *
+     * @param inflationNanos result of {@link #runInflation(int)}, or null.
+     */
+    void writeJson(
+            @NonNull List<Result> results,
+            @Nullable long[] inflationNanos,
+            @Nullable String label,
+            @NonNull Writer writer
+    ) throws IOException {
+        writer.write("{\"label\":");
+        writer.write(label != null ? quote(label) : "null");
+        writer.write(",\"results\":[");
+        for (int i = 0; i < results.size(); i++) {
+            final Result result = results.get(i);
+            if (i > 0) writer.write(',');
+            writer.write(String.format(Locale.US,
+                    "{\"style\":%s,\"fillType\":%d,\"points\":%d,\"setAdapterNanos\":%d,"
+                            + "\"drawNanos\":%d,\"scrubNanos\":%d,\"allocatedBytes\":%d}",
+                    quote(result.style), result.fillType, result.points, result.setAdapterNanos,
+                    result.drawNanos, result.scrubNanos, result.allocatedBytes));
+        }
+        writer.write(']');
+        if (inflationNanos != null) {
+            writer.write(",\"inflationNanos\":{");
+            for (int i = 0; i < inflationNanos.length; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(quote(styleNames.get(i)) + ':' + inflationNanos[i]);
+            }
+            writer.write('}');
+        }
+        writer.write('}');
+        writer.flush();
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /**
+     * Medians of one style, fill type and dataset size.
+     */
+    static final class Result {
+        final String style;
+        final int fillType;
+        final int points;
+        // time of setAdapter, including populating the path
+        final long setAdapterNanos;
+        final long drawNanos;
+        // time of all scrub events together, each with its redraw
+        final long scrubNanos;
+        // bytes allocated over the whole cycle
+        final long allocatedBytes;
+
+        Result(String style, int fillType, int points, long setAdapterNanos, long drawNanos,
+               long scrubNanos, long allocatedBytes) {
+            this.style = style;
+            this.fillType = fillType;
+            this.points = points;
+            this.setAdapterNanos = setAdapterNanos;
+            this.drawNanos = drawNanos;
+            this.scrubNanos = scrubNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
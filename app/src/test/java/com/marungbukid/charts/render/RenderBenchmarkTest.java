@@ -0,0 +1,60 @@
+package com.marungbukid.charts.render;
+
+import com.marungbukid.charts.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs {@link RenderBenchmark} over the full style, fill type and size matrix and writes the
+ * report to {@code build/reports/benchmark/render.json}. Skipped unless the build is run with
+ * {@code -PchartsBenchmark}, the million point runs take minutes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class RenderBenchmarkTest {
+    private static final int INFLATED_VIEWS = 100;
+
+    @Test
+    public void renderCycle() throws IOException {
+        assumeTrue(Boolean.getBoolean("charts.benchmark"));
+
+        final RenderBenchmark benchmark = new RenderBenchmark(RuntimeEnvironment.getApplication());
+        benchmark.addStyle("plain", Robolectric.buildAttributeSet().build());
+        benchmark.addStyle("scrub", Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.charts_scrubEnabled, "true")
+                .addAttribute(R.attr.charts_lastPointMarkerEnabled, "true")
+                .build());
+        benchmark.addStyle("axes", Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.charts_scrubEnabled, "true")
+                .addAttribute(R.attr.charts_hasPriceAxis, "true")
+                .addAttribute(R.attr.charts_priceAxisTextSize, "12sp")
+                .build());
+
+        final List<RenderBenchmark.Result> results = benchmark.run();
+        final long[] inflation = benchmark.runInflation(INFLATED_VIEWS);
+
+        final File report = new File(System.getProperty("charts.benchmark.dir", "build/reports/benchmark"),
+                "render.json");
+        report.getParentFile().mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8)) {
+            benchmark.writeJson(results, inflation, System.getProperty("charts.benchmark.label"), writer);
+        }
+    }
+}